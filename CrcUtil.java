@@ -7,8 +7,9 @@
 /// Stability   :  experimental
 /// Portability :  portable (Java 15+)
 ///
-/// Defines a utility class for computing the CRC-32 checksum of
-/// arbitrary input streams, intended to behave similarly to Cert[Uu]til.exe
+/// Defines a utility class for computing the CRC-32 checksum (or any
+/// other catalogued CRC algorithm) of arbitrary input streams, intended
+/// to behave similarly to Cert[Uu]til.exe
 ///
 /// To run, execute the following:
 ///
@@ -17,8 +18,79 @@
 
 
 import java.io.*;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.VarHandle;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Field;
+import java.net.InetAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+import java.util.zip.Checksum;
+import com.sun.management.HotSpotDiagnosticMXBean;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
 
 
 ////////////////////////////////////////////////////////////
@@ -30,14 +102,71 @@ import java.util.zip.CRC32;
 public class CrcUtil {
 
     /**
-     * Number of test blocks
+     * Lengths of the test blocks swept by the time trial
      */
-    private static final int TEST_BLOCK_COUNT = 1000000;
+    private static final int[] TEST_BLOCK_LENGTHS = {64, 4096, 65536, 1048576};
 
     /**
-     * Length of test block
+     * Longest message the test script checks every engine on
      */
-    private static final int TEST_BLOCK_LENGTH = 1000000;
+    private static final int CHECK_MAX_LENGTH = 8192;
+
+    /**
+     * Lengths of the blocks the test script checks {@link CrcModel#combine} with, in pairs
+     */
+    private static final int[][] CHECK_COMBINE_LENGTHS = {{0, 0}, {0, 1}, {1, 0}, {3, 5}, {100, 3000}, {4095, 4097}};
+
+    /**
+     * Default time spent measuring each block length and thread count, in seconds
+     */
+    private static final double DEFAULT_TRIAL_SECONDS = 1;
+
+    /**
+     * Minimum time spent measuring each block length and thread count, in seconds
+     */
+    private static final double MIN_TRIAL_SECONDS = 0.01;
+
+    /**
+     * Maximum time spent measuring each block length and thread count, in seconds
+     */
+    private static final double MAX_TRIAL_SECONDS = 3600;
+
+    /**
+     * Number of samples the measuring time of the time trial is divided into
+     */
+    private static final int TRIAL_SAMPLES = 10;
+
+    /**
+     * Fraction of the measuring time spent warming up beforehand
+     */
+    private static final double TRIAL_WARMUP = 0.25;
+
+    /**
+     * Default drop in throughput, in percent, beyond which a time trial compared with a baseline fails
+     */
+    private static final double DEFAULT_REGRESSION_THRESHOLD = 5;
+
+    /**
+     * Significance level below which a difference from the baseline is taken as real
+     */
+    private static final double SIGNIFICANCE_LEVEL = 0.05;
+
+    /**
+     * A result in the JSON output of the time trial
+     */
+    private static final Pattern TRIAL_RESULT = Pattern.compile(
+            "\\{\"blockLength\": (\\d+), \"threads\": (\\d+), \"samples\": (\\d+), "
+            + "\"meanGBps\": ([0-9.eE+-]+), \"stddevGBps\": ([0-9.eE+-]+)");
+
+    /**
+     * Sink for checksums computed by the time trial, so that no work can be optimised away
+     */
+    private static volatile long trialSink;
+
+    /**
+     * CPU time spent by the reader threads of {@code -pipeline}, in nanoseconds, so that the I/O benchmark can count it
+     */
+    private static final AtomicLong readerCpuTime = new AtomicLong();
 
     /**
      * Default buffer size
@@ -69,6 +198,192 @@ public class CrcUtil {
      */
     private static final int MAX_BYTES_PER_ROW = 65;
 
+    /**
+     * Minimum thread count
+     */
+    private static final int MIN_THREADS = 1;
+
+    /**
+     * Maximum thread count
+     */
+    private static final int MAX_THREADS = 1024;
+
+    /**
+     * Number of ranges handed out per thread, so that threads finishing early can pick up more work
+     */
+    private static final int RANGES_PER_THREAD = 4;
+
+    /**
+     * Minimum length of a range checksummed by a single thread
+     */
+    private static final long MIN_RANGE_LENGTH = 1048576;
+
+    /**
+     * Size of the buffer used for positional reads
+     */
+    private static final int RANGE_BUFFER_SIZE = 1048576;
+
+    /**
+     * Size of the window mapped into memory at a time.
+     * Kept well below the 2 GB limit of {@link MappedByteBuffer} so that address space usage stays bounded
+     */
+    private static final long MMAP_WINDOW_SIZE = 268435456;
+
+    /**
+     * Number of buffers in the ring between the reading and the hashing thread of a pipelined run
+     */
+    private static final int PIPELINE_SLOTS = 4;
+
+    /**
+     * Size of each buffer in the ring of a pipelined run
+     */
+    private static final int PIPELINE_BUFFER_SIZE = 1048576;
+
+    /**
+     * Default size of the file generated by the I/O benchmark, in MiB
+     */
+    private static final int DEFAULT_BENCH_IO_SIZE = 256;
+
+    /**
+     * Minimum size of the file generated by the I/O benchmark, in MiB
+     */
+    private static final int MIN_BENCH_IO_SIZE = 1;
+
+    /**
+     * Maximum size of the file generated by the I/O benchmark, in MiB
+     */
+    private static final int MAX_BENCH_IO_SIZE = 1048576;
+
+    /**
+     * Buffer sizes tried by the I/O benchmark
+     */
+    private static final int[] BENCH_IO_BUFFER_SIZES = {4096, 32768, 262144, 1048576, 4194304};
+
+    /**
+     * Number of timed runs of each I/O benchmark configuration
+     */
+    private static final int BENCH_IO_RUNS = 3;
+
+    /**
+     * Default number of files generated by the many-files benchmark
+     */
+    private static final int DEFAULT_BENCH_FILES_COUNT = 10000;
+
+    /**
+     * Minimum number of files generated by the many-files benchmark
+     */
+    private static final int MIN_BENCH_FILES_COUNT = 1;
+
+    /**
+     * Maximum number of files generated by the many-files benchmark
+     */
+    private static final int MAX_BENCH_FILES_COUNT = 100000000;
+
+    /**
+     * Default smallest file generated by the many-files benchmark
+     */
+    private static final int DEFAULT_BENCH_FILES_MIN_SIZE = 1024;
+
+    /**
+     * Default largest file generated by the many-files benchmark
+     */
+    private static final int DEFAULT_BENCH_FILES_MAX_SIZE = 65536;
+
+    /**
+     * Number of files per directory of the tree generated by the many-files benchmark
+     */
+    private static final int BENCH_FILES_PER_DIRECTORY = 1000;
+
+    /**
+     * Message lengths tried by the small-message benchmark
+     */
+    private static final int[] BENCH_SMALL_LENGTHS = {8, 16, 32, 64, 128, 256, 512, 1024, 2048, 4096};
+
+    /**
+     * Default number of timed calls per message length of the small-message benchmark
+     */
+    private static final int DEFAULT_BENCH_SMALL_CALLS = 1000000;
+
+    /**
+     * Minimum number of timed calls per message length of the small-message benchmark
+     */
+    private static final int MIN_BENCH_SMALL_CALLS = 1000;
+
+    /**
+     * Maximum number of timed calls per message length of the small-message benchmark
+     */
+    private static final int MAX_BENCH_SMALL_CALLS = 100000000;
+
+    /**
+     * Releases a mapped buffer without waiting for the garbage collector, or {@code null} if unsupported
+     */
+    private static final MethodHandle UNMAPPER = unmapper();
+
+    /**
+     * Names of the available checksum engines
+     */
+    private static final List<String> ENGINES = List.of("auto", "jdk", "slice8", "slice16", "fold", "gen");
+
+    /**
+     * Checksum engine selected on the command line
+     */
+    private static String engine = "auto";
+
+    /**
+     * CRC algorithm selected on the command line
+     */
+    private static CrcModel algorithm = CrcModel.CRC32;
+
+    /**
+     * Upper limit on concurrent reads that -adaptive tunes within when no thread count is given
+     */
+    private static final int DEFAULT_ADAPTIVE_THREADS = 64;
+
+    /**
+     * Default number of files read at once in virtual-thread mode
+     */
+    private static final int DEFAULT_CONCURRENCY = 256;
+
+    /**
+     * Minimum number of files read at once in virtual-thread mode
+     */
+    private static final int MIN_CONCURRENCY = 1;
+
+    /**
+     * Maximum number of files read at once in virtual-thread mode
+     */
+    private static final int MAX_CONCURRENCY = 65536;
+
+    /**
+     * Memory the output stage of multi-file runs may hold in results waiting for earlier ones, in bytes
+     */
+    private static final long OUTPUT_BUFFER_BYTES = 67108864;
+
+    /**
+     * Whether to report the choices made by the dispatcher
+     */
+    private static boolean verbose = false;
+
+    /**
+     * Whether to tune the number of concurrent reads to the measured throughput
+     */
+    private static boolean adaptive = false;
+
+    /**
+     * Smallest file that the dispatcher maps into memory when the engine is an intrinsified jdk engine
+     */
+    private static final long MMAP_THRESHOLD = 4194304;
+
+    /**
+     * Smallest file for which the dispatcher calibrates the engines
+     */
+    private static final long CALIBRATION_THRESHOLD = 16777216;
+
+    /**
+     * Estimated single-thread checksumming time, in seconds, above which the dispatcher splits a file across threads
+     */
+    private static final double PARALLEL_SECONDS = 0.1;
+
     /**
      * Entry point
      */
@@ -76,6 +391,24 @@ public class CrcUtil {
         int i;
         int BufferSize;
         int BytesPerRow;
+        int Threads;
+        int Size;
+        int Calls;
+        int Count;
+        int MinSize;
+        int MaxSize;
+        double Seconds;
+        double Threshold;
+        boolean json;
+        String SaveFile;
+        String CompareFile;
+        String Distribution;
+        boolean Recursive;
+        int Concurrency;
+        boolean FailFast;
+        boolean Physical;
+        List<String> Includes;
+        List<String> Excludes;
 
         if (args.length == 0) {
             usage(false);
@@ -87,8 +420,117 @@ public class CrcUtil {
             return;
         }
 
+        if (Arrays.asList(args).contains("-engine")) {
+            i = Arrays.asList(args).indexOf("-engine");
+            if (i + 1 == args.length) {  // java CrcUtil.java -engine
+                System.out.print("""
+                                 Expected 1 argument, received 0
+                                 CrcUtil: Missing argument
+                                 
+                                 """);
+                usage(false);
+                return;
+            }
+            if (!ENGINES.contains(args[i+1])) {
+                System.out.printf("CrcUtil: Engine should be one of %s.\n", String.join(", ", ENGINES));
+                return;
+            }
+            engine = args[i+1];
+            args = without(args, i, 2);
+        }
+
+        if (Arrays.asList(args).contains("-alg")) {
+            i = Arrays.asList(args).indexOf("-alg");
+            if (i + 1 == args.length) {  // java CrcUtil.java -alg
+                System.out.print("""
+                                 Expected 1 argument, received 0
+                                 CrcUtil: Missing argument
+                                 
+                                 """);
+                usage(false);
+                return;
+            }
+            algorithm = CrcModel.forName(args[i+1]);
+            if (algorithm == null) {
+                System.out.printf("CrcUtil: Unknown algorithm %s. Available algorithms:\n", args[i+1]);
+                for (CrcModel m : CrcModel.catalog()) {
+                    System.out.printf("  %s\n", m.name);
+                }
+                return;
+            }
+            args = without(args, i, 2);
+        }
+
+        if (Arrays.asList(args).contains("-v")) {
+            verbose = true;
+            args = without(args, Arrays.asList(args).indexOf("-v"), 1);
+        }
+
+        if (Arrays.asList(args).contains("-adaptive")) {
+            adaptive = true;
+            args = without(args, Arrays.asList(args).indexOf("-adaptive"), 1);
+        }
+
+        if (engine.equals("jdk") && !algorithm.hasJdkEngine()) {
+            System.out.printf("CrcUtil: The jdk engine does not support %s.\n", algorithm.name);
+            return;
+        }
+
         if (Arrays.asList(args).contains("-t")) {
-            timetrial();
+            json = Arrays.asList(args).contains("-json");
+            if (json) {
+                args = without(args, Arrays.asList(args).indexOf("-json"), 1);
+            }
+            SaveFile = null;
+            CompareFile = null;
+            Threshold = DEFAULT_REGRESSION_THRESHOLD;
+            for (String option : List.of("-save", "-compare", "--compare", "-threshold")) {
+                i = Arrays.asList(args).indexOf(option);
+                if (i == -1) {
+                    continue;
+                }
+                if (i + 1 == args.length) {
+                    System.out.printf("CrcUtil: %s requires an argument.\n", option);
+                    return;
+                }
+                if (option.equals("-save")) {
+                    SaveFile = args[i+1];
+                } else if (option.equals("-threshold")) {
+                    try {
+                        Threshold = Double.parseDouble(args[i+1]);
+                    } catch (NumberFormatException e) {
+                        Threshold = -1;
+                    }
+                    if (!(Threshold >= 0 && Threshold <= 100)) {
+                        System.out.println("CrcUtil: Threshold should be a percentage in the range of 0 through 100.");
+                        return;
+                    }
+                } else {
+                    CompareFile = args[i+1];
+                }
+                args = without(args, i, 2);
+            }
+            i = 0;
+            while (!args[i].equals("-t")) {
+                i++;
+            }
+            if (i + 1 < args.length) {
+                try {
+                    Seconds = Double.parseDouble(args[i+1]);
+                } catch (NumberFormatException e) {
+                    usage(false);
+                    return;
+                }
+                if (!(Seconds >= MIN_TRIAL_SECONDS && Seconds <= MAX_TRIAL_SECONDS)) {
+                    usage(false);
+                    return;
+                }
+            } else {
+                Seconds = DEFAULT_TRIAL_SECONDS;
+            }
+            if (!timetrial(Seconds, json, SaveFile, CompareFile, Threshold)) {
+                System.exit(1);
+            }
             return;
         }
 
@@ -175,221 +617,4983 @@ public class CrcUtil {
             return;
         }
 
-        // java CrcUtil.java InFile
-        crcFile(false, DEFAULT_BUFFER_SIZE, args[0]);
-    }
-
-    /**
-     * Displays help text
-     */
-    private static void usage(boolean full) {
-        System.out.print("""
-                         Usage:
-                           java CrcUtil.java [Options] [InFile]
-                           Generate and display CRC32 checksum over a file
-                         
-                         Options:
-                           -t                -- Run time trial
-                           -x                -- Run test script
-                           -s String                  -- Checksum string
-                           -showbytes [BytesPerRow]   -- Dump raw bytes
-                                     BytesPerRow ranges from 1 to 65 (default: 24)
-                         
-                           -showupdates [BufferSize]  -- Process BufferSize bytes at a time
-                                     BufferSize ranges from 1 to 2147483645 (default: 32768)
-                         
-                         CrcUtil -?              -- Display help text
-                         
-                         """
-                         + (full ? """
-                         CrcUtil: -? command completed successfully.
-                         
-                         """ : ""));
-    }
-
-    /**
-     * Runs time trial
-     */
-    private static void timetrial() {
-        int i;
-        CRC32 crc32;
-        long startTime, endTime;
-        byte[] block = new byte[TEST_BLOCK_LENGTH];
-
-        System.out.printf(
-                "CRC32 time trial. Checksumming %d %d-byte blocks...", TEST_BLOCK_COUNT, TEST_BLOCK_LENGTH);
-
-        for (i = 0; i < TEST_BLOCK_LENGTH; i++) {
-            block[i] = (byte) (i & 0xFF);
+        if (Arrays.asList(args).contains("-parallel")) {
+            i = 0;
+            while (!args[i].equals("-parallel")) {
+                i++;
+            }
+            if (i + 1 == args.length) {  // java CrcUtil.java -parallel
+                System.out.print("""
+                                 Expected at least 1 argument, received 0
+                                 CrcUtil: Missing argument
+                                 
+                                 """);
+                usage(false);
+            } else if (i + 2 == args.length) {  // java CrcUtil.java -parallel InFile
+                crcFileParallel(defaultThreads(), args[i+1]);
+            } else {  // java CrcUtil.java -parallel Threads InFile
+                try {
+                    Threads = Integer.parseUnsignedInt(args[i+1]);
+                    if (Threads < MIN_THREADS || Threads > MAX_THREADS) {
+                        System.out.printf(
+                                "CrcUtil: Threads should be an unsigned integer in the range of %d through %d.\n",
+                                        MIN_THREADS, MAX_THREADS);
+                    } else {
+                        crcFileParallel(Threads, args[i+2]);
+                    }
+                } catch (NumberFormatException e) {
+                    System.out.println("CrcUtil: The provided Threads argument does not have the appropriate format.");
+                }
+            }
+            return;
         }
 
-        startTime = System.currentTimeMillis();
-
-        crc32 = new CRC32();
-        for (i = 0; i < TEST_BLOCK_COUNT; i++) {
-            crc32.update(block, 0, TEST_BLOCK_LENGTH);
+        Threads = defaultThreads();
+        i = Arrays.asList(args).indexOf("-j");
+        if (i != -1) {
+            try {
+                Threads = Integer.parseUnsignedInt(i + 1 < args.length ? args[i+1] : "");
+            } catch (NumberFormatException e) {
+                System.out.println("CrcUtil: The provided Threads argument does not have the appropriate format.");
+                return;
+            }
+            if (Threads < MIN_THREADS || Threads > MAX_THREADS) {
+                System.out.printf(
+                        "CrcUtil: Threads should be an unsigned integer in the range of %d through %d.\n",
+                                MIN_THREADS, MAX_THREADS);
+                return;
+            }
+            args = without(args, i, 2);
+        }
+        Concurrency = 0;
+        i = Arrays.asList(args).indexOf("-virtual");
+        if (i != -1) {
+            Concurrency = DEFAULT_CONCURRENCY;
+            args = without(args, i, 1);
+            if (i < args.length && args[i].matches("[0-9]+")
+                    && (i + 1 < args.length || Arrays.asList(args).contains("-bench-files"))) {  // -virtual Concurrency Path...
+                try {
+                    Concurrency = Integer.parseUnsignedInt(args[i]);
+                } catch (NumberFormatException e) {
+                    Concurrency = 0;
+                }
+                if (Concurrency < MIN_CONCURRENCY || Concurrency > MAX_CONCURRENCY) {
+                    System.out.printf(
+                            "CrcUtil: Concurrency should be an unsigned integer in the range of %d through %d.\n",
+                                    MIN_CONCURRENCY, MAX_CONCURRENCY);
+                    return;
+                }
+                args = without(args, i, 1);
+            }
+            if (!TreeWalk.hasVirtualThreads()) {
+                System.err.println("CrcUtil: Virtual threads are not available (requires Java 21); using platform threads.");
+            }
         }
 
-        endTime = System.currentTimeMillis();
-
-        System.out.printf("""
-                           done
-                          Checksum = %x
-                          Time = %d seconds
-                          Speed = %d bytes/second
-                          CrcUtil: -t command completed successfully.
-                          """, crc32.getValue(), (endTime - startTime) / 1000, ((long) TEST_BLOCK_LENGTH * (long) TEST_BLOCK_COUNT) / ((endTime - startTime) / 1000));
-    }
-
-    /**
-     * Runs test script
+        if (Arrays.asList(args).contains("-bench-files")) {
+            MinSize = DEFAULT_BENCH_FILES_MIN_SIZE;
+            MaxSize = DEFAULT_BENCH_FILES_MAX_SIZE;
+            i = Arrays.asList(args).indexOf("-sizes");
+            if (i != -1) {
+                try {
+                    MinSize = Integer.parseUnsignedInt(args[i+1].substring(0, args[i+1].indexOf(':')));
+                    MaxSize = Integer.parseUnsignedInt(args[i+1].substring(args[i+1].indexOf(':') + 1));
+                } catch (IndexOutOfBoundsException | NumberFormatException e) {
+                    MinSize = 0;
+                }
+                if (MinSize < 1 || MaxSize < MinSize) {
+                    System.out.println("CrcUtil: Sizes should be given as Min:Max, with 1 <= Min <= Max bytes.");
+                    return;
+                }
+                args = without(args, i, 2);
+            }
+            Distribution = "log";
+            i = Arrays.asList(args).indexOf("-dist");
+            if (i != -1) {
+                Distribution = i + 1 < args.length ? args[i+1] : "";
+                if (!Distribution.equals("log") && !Distribution.equals("uniform")) {
+                    System.out.println("CrcUtil: Distribution should be one of log, uniform.");
+                    return;
+                }
+                args = without(args, i, 2);
+            }
+            i = 0;
+            while (!args[i].equals("-bench-files")) {
+                i++;
+            }
+            Count = DEFAULT_BENCH_FILES_COUNT;
+            if (i + 1 < args.length && args[i+1].matches("[0-9]+")) {  // java CrcUtil.java -bench-files Count [Directory]
+                try {
+                    Count = Integer.parseUnsignedInt(args[i+1]);
+                } catch (NumberFormatException e) {
+                    Count = 0;
+                }
+                if (Count < MIN_BENCH_FILES_COUNT || Count > MAX_BENCH_FILES_COUNT) {
+                    System.out.printf(
+                            "CrcUtil: Count should be an unsigned integer in the range of %d through %d.\n",
+                                    MIN_BENCH_FILES_COUNT, MAX_BENCH_FILES_COUNT);
+                    return;
+                }
+                i++;
+            }
+            benchfiles(Count, MinSize, MaxSize, Distribution, Threads, Concurrency,
+                       i + 1 < args.length ? args[i+1] : System.getProperty("java.io.tmpdir"));
+            return;
+        }
+
+        if (Arrays.asList(args).contains("-bench-small")) {
+            i = 0;
+            while (!args[i].equals("-bench-small")) {
+                i++;
+            }
+            if (i + 1 == args.length) {  // java CrcUtil.java -bench-small
+                benchsmall(DEFAULT_BENCH_SMALL_CALLS);
+            } else {  // java CrcUtil.java -bench-small Calls
+                try {
+                    Calls = Integer.parseUnsignedInt(args[i+1]);
+                    if (Calls < MIN_BENCH_SMALL_CALLS || Calls > MAX_BENCH_SMALL_CALLS) {
+                        System.out.printf(
+                                "CrcUtil: Calls should be an unsigned integer in the range of %d through %d.\n",
+                                        MIN_BENCH_SMALL_CALLS, MAX_BENCH_SMALL_CALLS);
+                    } else {
+                        benchsmall(Calls);
+                    }
+                } catch (NumberFormatException e) {
+                    System.out.println("CrcUtil: The provided Calls argument does not have the appropriate format.");
+                }
+            }
+            return;
+        }
+
+        if (Arrays.asList(args).contains("-bench-io")) {
+            i = 0;
+            while (!args[i].equals("-bench-io")) {
+                i++;
+            }
+            Size = DEFAULT_BENCH_IO_SIZE;
+            if (i + 1 < args.length && args[i+1].matches("[0-9]+")) {  // java CrcUtil.java -bench-io Size [Directory]
+                try {
+                    Size = Integer.parseUnsignedInt(args[i+1]);
+                } catch (NumberFormatException e) {
+                    Size = 0;
+                }
+                if (Size < MIN_BENCH_IO_SIZE || Size > MAX_BENCH_IO_SIZE) {
+                    System.out.printf(
+                            "CrcUtil: Size should be an unsigned integer in the range of %d through %d.\n",
+                                    MIN_BENCH_IO_SIZE, MAX_BENCH_IO_SIZE);
+                    return;
+                }
+                i++;
+            }
+            benchio(Size, i + 1 < args.length ? args[i+1] : System.getProperty("java.io.tmpdir"));
+            return;
+        }
+
+        if (Arrays.asList(args).contains("-pipeline")) {
+            i = 0;
+            while (!args[i].equals("-pipeline")) {
+                i++;
+            }
+            if (i + 1 == args.length) {  // java CrcUtil.java -pipeline
+                System.out.print("""
+                                 Expected at least 1 argument, received 0
+                                 CrcUtil: Missing argument
+                                 
+                                 """);
+                usage(false);
+            } else {  // java CrcUtil.java -pipeline InFile
+                crcFilePipelined(args[i+1]);
+            }
+            return;
+        }
+
+        if (Arrays.asList(args).contains("-mmap")) {
+            i = 0;
+            while (!args[i].equals("-mmap")) {
+                i++;
+            }
+            if (i + 1 == args.length) {  // java CrcUtil.java -mmap
+                System.out.print("""
+                                 Expected at least 1 argument, received 0
+                                 CrcUtil: Missing argument
+                                 
+                                 """);
+                usage(false);
+            } else {  // java CrcUtil.java -mmap InFile
+                crcFileMapped(args[i+1]);
+            }
+            return;
+        }
+
+        Recursive = Arrays.asList(args).contains("-r");
+        if (Recursive) {
+            args = without(args, Arrays.asList(args).indexOf("-r"), 1);
+        }
+        FailFast = Arrays.asList(args).contains("-failfast");
+        if (FailFast) {
+            args = without(args, Arrays.asList(args).indexOf("-failfast"), 1);
+        }
+        Physical = Arrays.asList(args).contains("-physical");
+        if (Physical) {
+            args = without(args, Arrays.asList(args).indexOf("-physical"), 1);
+        }
+        Includes = new ArrayList<>();
+        Excludes = new ArrayList<>();
+        while ((i = Arrays.asList(args).indexOf("-include")) != -1 || (i = Arrays.asList(args).indexOf("-exclude")) != -1) {
+            if (i + 1 == args.length) {
+                System.out.printf("CrcUtil: %s requires an argument.\n", args[i]);
+                return;
+            }
+            (args[i].equals("-include") ? Includes : Excludes).add(args[i+1]);
+            args = without(args, i, 2);
+        }
+        if (args.length == 0) {
+            usage(false);
+            return;
+        }
+
+        if (Recursive || args.length > 1 || !Includes.isEmpty() || !Excludes.isEmpty() || Concurrency > 0 || FailFast || Physical) {
+            // java CrcUtil.java [-r] [-j Threads | -virtual [Concurrency]] [-failfast] [-physical] [-include Glob] [-exclude Glob] Path...
+            crcFiles(Arrays.asList(args), Recursive, Threads, Concurrency, FailFast, Physical, Includes, Excludes);
+            return;
+        }
+
+        // java CrcUtil.java InFile
+        crcFileAuto(args[0]);
+    }
+
+    /**
+     * Computes the CRC-32 of two concatenated blocks
+     *
+     * @param crcA CRC-32 of the first block
+     * @param crcB CRC-32 of the second block
+     * @param lenB length of the second block in bytes
+     * @return the CRC-32 of the first block followed by the second
+     * @throws IllegalArgumentException if {@code lenB} is negative
+     */
+    public static long combine(long crcA, long crcB, long lenB) {
+        return CrcModel.CRC32.combine(crcA, crcB, lenB);
+    }
+
+    /**
+     * Like {@link CrcUtil#combine(long, long, long)}, for a catalogued algorithm
+     *
+     * @param algorithm name or alias of the algorithm, such as {@code CRC-64/XZ}
+     * @throws IllegalArgumentException if the algorithm is not catalogued, or {@code lenB} is negative
+     */
+    public static long combine(String algorithm, long crcA, long crcB, long lenB) {
+        return model(algorithm).combine(crcA, crcB, lenB);
+    }
+
+    /**
+     * Like {@link CrcUtil#combine(String, long, long, long)}, for appending any number of blocks of one length.
+     * <p>
+     * The algorithm is looked up and the operator for {@code lenB} built once, so each application
+     * costs a single GF(2) product, as {@code -parallel} merges its ranges.
+     *
+     * @param algorithm name or alias of the algorithm, such as {@code CRC-64/XZ}
+     * @param lenB      length of each second block in bytes
+     * @return a function from the checksums of a first block and of a second block to the checksum of both
+     * @throws IllegalArgumentException if the algorithm is not catalogued, or {@code lenB} is negative
+     */
+    public static LongBinaryOperator combiner(String algorithm, long lenB) {
+        CrcModel  m;
+        long      op;
+
+        m = model(algorithm);
+        op = m.combineGen(lenB);
+        return lenB == 0 ? (crcA, crcB) -> crcA : (crcA, crcB) -> m.combineOp(crcA, crcB, op);
+    }
+
+    /**
+     * Extends a CRC-32 by zero bytes
+     *
+     * @param crc       CRC-32 of a block
+     * @param zeroBytes number of zero bytes appended to the block
+     * @return the CRC-32 of the block followed by {@code zeroBytes} zero bytes
+     * @throws IllegalArgumentException if {@code zeroBytes} is negative
+     */
+    public static long shift(long crc, long zeroBytes) {
+        return CrcModel.CRC32.shift(crc, zeroBytes);
+    }
+
+    /**
+     * Like {@link CrcUtil#shift(long, long)}, for a catalogued algorithm
+     *
+     * @param algorithm name or alias of the algorithm, such as {@code CRC-64/XZ}
+     * @throws IllegalArgumentException if the algorithm is not catalogued, or {@code zeroBytes} is negative
+     */
+    public static long shift(String algorithm, long crc, long zeroBytes) {
+        return model(algorithm).shift(crc, zeroBytes);
+    }
+
+    /**
+     * Computes the CRC-32 of {@code n} zero bytes
+     *
+     * @throws IllegalArgumentException if {@code n} is negative
+     */
+    public static long crcOfZeros(long n) {
+        return CrcModel.CRC32.crcOfZeros(n);
+    }
+
+    /**
+     * Like {@link CrcUtil#crcOfZeros(long)}, for a catalogued algorithm
+     *
+     * @param algorithm name or alias of the algorithm, such as {@code CRC-64/XZ}
+     * @throws IllegalArgumentException if the algorithm is not catalogued, or {@code n} is negative
+     */
+    public static long crcOfZeros(String algorithm, long n) {
+        return model(algorithm).crcOfZeros(n);
+    }
+
+    /**
+     * Creates a checksum for a catalogued algorithm, as selected with {@code -alg} and {@code -engine}
+     * <p>
+     * The returned checksum's {@link Checksum#getValue()} is the finished CRC of the algorithm.
+     * Engines that are unavailable in the running JVM fall back to {@code fold}.
+     *
+     * @param algorithm name or alias of the algorithm, such as {@code CRC-64/XZ}
+     * @param engine    one of {@code auto}, {@code jdk}, {@code slice8}, {@code slice16}, {@code fold}
+     *                  or {@code gen}
+     * @throws IllegalArgumentException if the algorithm is not catalogued, the engine is unknown,
+     *                                  or the engine is {@code jdk} and the JDK does not implement the algorithm
+     */
+    public static Checksum newChecksum(String algorithm, String engine) {
+        CrcModel m = model(algorithm);
+        if (!ENGINES.contains(engine)) {
+            throw new IllegalArgumentException("Unknown engine: " + engine);
+        }
+        if (engine.equals("jdk") && !m.hasJdkEngine()) {
+            throw new IllegalArgumentException("The jdk engine does not support " + m.name);
+        }
+        return newChecksum(m, engineName(m, engine));
+    }
+
+    /**
+     * Resets {@code crc} and computes the checksum of {@code len} bytes of {@code b} starting at {@code off}.
+     * <p>
+     * Allocates nothing, so a checksum from {@link CrcUtil#newChecksum(String, String)} can be kept per
+     * thread and reused for any number of messages.
+     *
+     * @return the checksum of the message
+     */
+    public static long checksum(Checksum crc, byte[] b, int off, int len) {
+        crc.reset();
+        crc.update(b, off, len);
+        return crc.getValue();
+    }
+
+    /**
+     * Like {@link CrcUtil#checksum(Checksum, byte[], int, int)}, for the remaining bytes of a buffer.
+     * The buffer's position is advanced to its limit
+     */
+    public static long checksum(Checksum crc, ByteBuffer buf) {
+        crc.reset();
+        crc.update(buf);
+        return crc.getValue();
+    }
+
+    /**
+     * Resets {@code crc} and computes the checksum of a file read sequentially through a
+     * {@link FileInputStream}, as the default command reads it
+     *
+     * @param file the file
+     * @param buf  the buffer each read fills
+     * @param crc  the checksum to use
+     * @return the checksum of the file
+     * @throws IOException if the file cannot be read
+     */
+    public static long checksumStream(Path file, byte[] buf, Checksum crc) throws IOException {
+        try (FileInputStream fin = new FileInputStream(file.toFile())) {
+            return checksumStream(fin, buf, crc);
+        }
+    }
+
+    /**
+     * Like {@link CrcUtil#checksumStream(Path, byte[], Checksum)}, for the rest of a stream; the
+     * sequential read loop of the default command and of every whole-file read
+     *
+     * @return the checksum of the bytes read
+     * @throws IOException if the stream cannot be read
+     */
+    public static long checksumStream(InputStream in, byte[] buf, Checksum crc) throws IOException {
+        int  i;
+
+        crc.reset();
+        i = in.read(buf);
+        while (i != -1) {
+            crc.update(buf, 0, i);
+            i = in.read(buf);
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Resets {@code crc} and computes the checksum of the bytes of a channel in the range
+     * [{@code start}, {@code end}) using positional reads; the read loop of {@code -parallel}
+     * and of every range of a split file
+     *
+     * @param buf a heap or direct buffer; each read fills up to its capacity
+     * @return the checksum of the range
+     * @throws EOFException if the channel ends before {@code end}
+     * @throws IOException  if the channel cannot be read
+     */
+    public static long checksumRange(FileChannel ch, long start, long end, ByteBuffer buf, Checksum crc) throws IOException {
+        int   i;
+        long  pos;
+
+        crc.reset();
+        pos = start;
+        while (pos < end) {
+            buf.clear().limit((int) Math.min(buf.capacity(), end - pos));
+            i = ch.read(buf, pos);
+            if (i == -1) {
+                throw new EOFException();
+            }
+            crc.update(buf.flip());
+            pos += i;
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Resets {@code crc} and computes the checksum of the rest of a channel read sequentially;
+     * the read loop of {@code -bench-io}'s channel and direct runs
+     *
+     * @param buf a heap or direct buffer; each read fills up to its capacity. A channel opened with
+     *            {@link CrcUtil#directOption()} needs a direct buffer aligned to, and sized in
+     *            multiples of, the block size of its file store
+     * @return the checksum of the bytes read
+     * @throws IOException if the channel cannot be read
+     */
+    public static long checksumChannel(FileChannel ch, ByteBuffer buf, Checksum crc) throws IOException {
+        crc.reset();
+        while (ch.read(buf.clear()) != -1) {
+            crc.update(buf.flip());
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Resets {@code crc} and computes the checksum of a channel by mapping it into memory one window
+     * at a time, as {@code -mmap} does. Each window is passed to {@link Checksum#update(ByteBuffer)}
+     * directly and unmapped as soon as it has been consumed
+     *
+     * @return the checksum of the channel
+     * @throws IOException if the channel cannot be mapped
+     */
+    public static long checksumMapped(FileChannel ch, Checksum crc) throws IOException {
+        long  pos;
+        long  size;
+        MappedByteBuffer  window;
+
+        crc.reset();
+        size = ch.size();
+        pos = 0;
+        while (pos < size) {
+            window = ch.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(MMAP_WINDOW_SIZE, size - pos));
+            pos += window.remaining();
+            crc.update(window);
+            unmap(window);
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Returns {@code com.sun.nio.file.ExtendedOpenOption.DIRECT}, which opens a file with {@code O_DIRECT}
+     * and is not part of the Java SE API
+     *
+     * @throws UnsupportedOperationException if the JDK does not offer it
+     */
+    public static OpenOption directOption() {
+        try {
+            return (OpenOption) Class.forName("com.sun.nio.file.ExtendedOpenOption").getField("DIRECT").get(null);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("O_DIRECT");
+        }
+    }
+
+    /**
+     * Looks up a catalogued algorithm for the public API
+     */
+    private static CrcModel model(String algorithm) {
+        CrcModel m = CrcModel.forName(algorithm);
+        if (m == null) {
+            throw new IllegalArgumentException("Unknown algorithm: " + algorithm);
+        }
+        return m;
+    }
+
+    /**
+     * Returns {@code args} with {@code count} arguments removed starting at index {@code from}
+     */
+    private static String[] without(String[] args, int from, int count) {
+        String[] rest = new String[args.length - count];
+        System.arraycopy(args, 0, rest, 0, from);
+        System.arraycopy(args, from + count, rest, from, args.length - from - count);
+        return rest;
+    }
+
+    /**
+     * The number of threads reading concurrently when none is given: the number of processors,
+     * or with -adaptive the upper limit that the controller tunes within
+     */
+    private static int defaultThreads() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        return adaptive ? Math.max(cores, DEFAULT_ADAPTIVE_THREADS) : cores;
+    }
+
+    /**
+     * Creates the controller for {@code Limit} concurrent reads, which with -adaptive starts at the number
+     * of processors and is tuned between 1 and {@code Limit}, reporting each adjustment with -v
+     */
+    private static ConcurrencyController newController(int Limit) {
+        if (!adaptive) {
+            return new ConcurrencyController(Limit, Limit, Limit, null);
+        }
+        return new ConcurrencyController(Math.min(Limit, Runtime.getRuntime().availableProcessors()), 1, Limit,
+                                         verbose ? System.err::print : null);
+    }
+
+    /**
+     * Returns the engine that {@link CrcUtil#newChecksum()} uses, resolving {@code auto}
+     */
+    private static String engineName() {
+        return engineName(algorithm, engine);
+    }
+
+    /**
+     * Resolves an engine name for an algorithm, as {@link CrcUtil#engineName()}
+     */
+    private static String engineName(CrcModel m, String name) {
+        String  best;
+
+        if (name.equals("gen") && !GeneratedCrc.isAvailable(m)) {
+            return "fold";
+        }
+        if (!name.equals("auto")) {
+            return name;
+        }
+        best = Calibration.best(m);
+        if (best != null) {
+            return best;
+        }
+        return m.hasJdkEngine() ? "jdk" : "fold";
+    }
+
+    /**
+     * Creates a checksum for the selected algorithm using the selected engine
+     */
+    private static Checksum newChecksum() {
+        return newChecksum(algorithm, engineName());
+    }
+
+    /**
+     * Creates a checksum for the selected algorithm using the named engine
+     */
+    private static Checksum newChecksum(String name) {
+        return newChecksum(algorithm, name);
+    }
+
+    /**
+     * Creates a checksum for an algorithm using the named engine
+     */
+    private static Checksum newChecksum(CrcModel m, String name) {
+        switch (name) {
+            case "slice8":
+                return new SlicingCrc(m, 8);
+            case "slice16":
+                return new SlicingCrc(m, 16);
+            case "fold":
+                return new FoldingCrc(m);
+            case "gen":
+                return GeneratedCrc.create(m);
+            default:
+                return m.newJdkChecksum();
+        }
+    }
+
+    /**
+     * Name of the selected algorithm as shown in output
+     */
+    private static String label() {
+        return algorithm == CrcModel.CRC32 ? "CRC32" : algorithm.name;
+    }
+
+    /**
+     * Displays help text
+     */
+    private static void usage(boolean full) {
+        System.out.print("""
+                         Usage:
+                           java CrcUtil.java [Options] [InFile]
+                           Generate and display CRC32 checksum over a file
+                         
+                         Options:
+                           -t [Seconds] [-json]       -- Run time trial over a range of block lengths and thread counts
+                                     Seconds of measurement per run range from 0.01 to 3600 (default: 1)
+                                     -json prints the results as JSON
+                                     -save File writes the JSON results to File, for use as a baseline
+                                     -compare File compares the results with a baseline and exits with status 1
+                                     when any run is significantly slower (Welch's t-test, p < 0.05) by more
+                                     than -threshold Percent (default: 5)
+                         
+                           -x                -- Run test script
+                           -s String                  -- Checksum string
+                           -showbytes [BytesPerRow]   -- Dump raw bytes
+                                     BytesPerRow ranges from 1 to 65 (default: 24)
+                         
+                           -showupdates [BufferSize]  -- Process BufferSize bytes at a time
+                                     BufferSize ranges from 1 to 2147483645 (default: 32768)
+                         
+                           -parallel [Threads]        -- Checksum ranges of the file concurrently
+                                     Threads ranges from 1 to 1024 (default: number of processors)
+                         
+                           -mmap                      -- Checksum the file through memory-mapped windows
+                         
+                           -pipeline                  -- Read the file on one thread while hashing it on another
+                         
+                           -bench-io [Size] [Directory] -- Compare read strategies and buffer sizes
+                                     on a generated file of Size MiB (default: 256) in Directory (default: java.io.tmpdir)
+                         
+                           -bench-small [Calls]       -- Measure latency and allocation per call on 8 B to 4 KiB messages
+                                     Calls per message length range from 1000 to 100000000 (default: 1000000)
+                         
+                           -bench-files [Count] [Directory] -- Measure throughput and per-file latency on a tree of
+                                     Count small files (default: 10000) generated in Directory (default: java.io.tmpdir)
+                                     -sizes Min:Max sets the file sizes in bytes (default: 1024:65536)
+                                     -dist log|uniform sets their distribution (default: log)
+                                     -j Threads and -virtual [Concurrency] set up the parallel row as for -r
+                         
+                           -engine Engine             -- Select the checksum engine
+                                     Engine is one of auto, jdk, slice8, slice16, fold, gen (default: auto)
+                         
+                           -alg Algorithm             -- Select the CRC algorithm
+                                     Algorithm is a catalogued name such as CRC32C or CRC-16/MODBUS (default: CRC-32)
+                         
+                           -v                         -- Report the strategy and engine chosen automatically
+                         
+                           -adaptive                  -- Tune the number of concurrent reads to the measured throughput
+                                     in -parallel and multi-file runs, up to Threads or Concurrency (default: 64 threads)
+                                     With -v, each adjustment is reported on standard error
+                         
+                         CrcUtil [-r] [-j Threads | -virtual [Concurrency]] [-failfast] [-physical] [-include Glob] [-exclude Glob] Path...
+                                                     -- Checksum several files, or with -r whole directory trees
+                                     Files are checksummed concurrently on Threads threads (default: number of processors)
+                                     per device, or 2 threads on a rotational disk; with -v the devices found are reported
+                                     -virtual reads each file on its own virtual thread, Concurrency files at a time
+                                     (default: 256), for file systems where latency rather than bandwidth limits reading
+                                     -failfast stops at the first error
+                                     -physical reads the files on rotational disks one at a time in inode order,
+                                     which approximates their order on the disk, to cut seeking
+                                     Globs match the path relative to the directory given, or the file name,
+                                     and may be repeated; -exclude also prunes directories
+                         
+                         CrcUtil -?              -- Display help text
+                         
+                         """
+                         + (full ? """
+                         CrcUtil: -? command completed successfully.
+                         
+                         """ : ""));
+    }
+
+    /**
+     * Runs time trial
+     * <p>
+     * Every combination of block length and thread count (1, 2, 4, ... up to the number of
+     * processors) is warmed up and then measured for {@code Seconds}, split into
+     * {@link CrcUtil#TRIAL_SAMPLES} samples. Each thread checksums its own block repeatedly.
+     * The mean and standard deviation of the aggregate throughput over the samples are reported.
+     * <p>
+     * Given a baseline saved by an earlier trial, each combination is also reported with its change
+     * in mean throughput and the p-value of Welch's t-test. A combination regresses when it is slower
+     * by more than {@code Threshold} percent and the p-value is below {@link CrcUtil#SIGNIFICANCE_LEVEL}.
+     *
+     * @param Seconds     time spent measuring each combination
+     * @param json        whether to print the results as JSON instead of a table
+     * @param SaveFile    file to save the JSON results to, or {@code null}
+     * @param CompareFile baseline to compare the results with, or {@code null}
+     * @param Threshold   drop in throughput, in percent, tolerated before failing
+     * @return {@code false} if the trial could not be compared or any combination regressed
+     */
+    private static boolean timetrial(double Seconds, boolean json, String SaveFile, String CompareFile, double Threshold) {
+        int                    cores, regressions;
+        double                 mean, stddev, delta, p;
+        double[]               samples, base;
+        String                 document;
+        List<Integer>          threadCounts;
+        Map<String, double[]>  baseline;
+        StringBuilder          results;
+        ExecutorService        pool;
+
+        baseline = null;
+        if (CompareFile != null) {
+            baseline = trialBaseline(CompareFile, json);
+            if (baseline == null) {
+                return false;
+            }
+        }
+
+        cores = Runtime.getRuntime().availableProcessors();
+        threadCounts = new ArrayList<>();
+        for (int t = 1; t < cores; t *= 2) {
+            threadCounts.add(t);
+        }
+        threadCounts.add(cores);
+
+        if (!json) {
+            System.out.printf("%s time trial (%s engine, %d processors, %s s per run):\n",
+                              label(), engineName(), cores, Seconds);
+            System.out.printf("%10s %8s %12s %12s %14s", "Block", "Threads", "GB/s", "Stddev", "ns/block");
+            System.out.println(baseline != null ? String.format(" %12s %9s %8s", "Baseline", "Delta %", "p") : "");
+        }
+
+        regressions = 0;
+        results = new StringBuilder();
+        pool = Executors.newFixedThreadPool(cores);
+        try {
+            for (int length : TEST_BLOCK_LENGTHS) {
+                for (int Threads : threadCounts) {
+                    trialSamples(pool, length, Threads, (long) (Seconds * TRIAL_WARMUP * 1e9), 1);
+                    samples = trialSamples(pool, length, Threads, (long) (Seconds * 1e9 / TRIAL_SAMPLES), TRIAL_SAMPLES);
+
+                    mean = 0;
+                    for (double x : samples) {
+                        mean += x;
+                    }
+                    mean /= samples.length;
+                    stddev = 0;
+                    for (double x : samples) {
+                        stddev += (x - mean) * (x - mean);
+                    }
+                    stddev = Math.sqrt(stddev / (samples.length - 1));
+
+                    base = baseline != null ? baseline.get(length + "/" + Threads) : null;
+                    delta = 0;
+                    p = 1;
+                    if (base != null) {
+                        delta = (mean - base[0]) / base[0] * 100;
+                        p = welchTest(mean, stddev, samples.length, base[0], base[1], (int) base[2]);
+                        if (delta < -Threshold && p < SIGNIFICANCE_LEVEL) {
+                            regressions++;
+                        }
+                    }
+
+                    results.append(results.length() == 0 ? "\n" : ",\n").append(String.format(Locale.ROOT,
+                            "    {\"blockLength\": %d, \"threads\": %d, \"samples\": %d, "
+                            + "\"meanGBps\": %.4f, \"stddevGBps\": %.4f, \"nsPerBlock\": %.2f",
+                            length, Threads, samples.length, mean, stddev, length * Threads / mean));
+                    if (base != null) {
+                        results.append(String.format(Locale.ROOT,
+                                ", \"baselineGBps\": %.4f, \"deltaPercent\": %.2f, \"pValue\": %.4g", base[0], delta, p));
+                    }
+                    results.append("}");
+
+                    if (!json) {
+                        System.out.printf("%10d %8d %12.3f %12.3f %14.2f", length, Threads, mean, stddev, length * Threads / mean);
+                        if (base != null) {
+                            System.out.printf(" %12.3f %+9.2f %8.4f%s\n", base[0], delta, p,
+                                              delta < -Threshold && p < SIGNIFICANCE_LEVEL ? "  regression" : "");
+                        } else {
+                            System.out.println(baseline != null ? " (not in baseline)" : "");
+                        }
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        document = String.format(Locale.ROOT, """
+                                 {
+                                   "algorithm": "%s",
+                                   "engine": "%s",
+                                   "java": "%s",
+                                   "arch": "%s",
+                                   "processors": %d,
+                                   "secondsPerRun": %s,
+                                   "results": [%s
+                                   ]
+                                 }
+                                 """, algorithm.name, engineName(), System.getProperty("java.vm.version"),
+                                 System.getProperty("os.arch"), cores, Seconds, results);
+        if (json) {
+            System.out.print(document);
+        }
+        if (SaveFile != null) {
+            try {
+                Files.writeString(Paths.get(SaveFile), document);
+            } catch (IOException e) {
+                System.out.println("CrcUtil: The results could not be saved.");
+                return false;
+            }
+        }
+
+        if (regressions > 0) {
+            if (!json) {
+                System.out.printf("CrcUtil: -t command failed: %d runs slower than the baseline by more than %s%%\n",
+                                  regressions, Threshold);
+            }
+            return false;
+        }
+        if (!json) {
+            System.out.println("CrcUtil: -t command completed successfully.");
+        }
+        return true;
+    }
+
+    /**
+     * Reads a baseline saved by the time trial, noting unless {@code quiet} if it was recorded for another algorithm or engine
+     *
+     * @return mean, standard deviation and sample count keyed by {@code blockLength/threads},
+     *         or {@code null} if the file cannot be read or holds no results
+     */
+    private static Map<String, double[]> trialBaseline(String CompareFile, boolean quiet) {
+        String                 document;
+        Matcher                m;
+        Map<String, double[]>  baseline;
+
+        try {
+            document = Files.readString(Paths.get(CompareFile));
+        } catch (IOException e) {
+            System.out.println("CrcUtil: The system cannot find the file specified.");
+            return null;
+        }
+        m = Pattern.compile("\"algorithm\": \"([^\"]*)\",\\s*\"engine\": \"([^\"]*)\"").matcher(document);
+        if (!quiet && m.find() && !(m.group(1).equals(algorithm.name) && m.group(2).equals(engineName()))) {
+            System.out.printf("CrcUtil: Note: the baseline was recorded for %s with the %s engine.\n", m.group(1), m.group(2));
+        }
+        m = TRIAL_RESULT.matcher(document);
+        baseline = new HashMap<>();
+        while (m.find()) {
+            baseline.put(m.group(1) + "/" + m.group(2), new double[] {
+                    Double.parseDouble(m.group(4)), Double.parseDouble(m.group(5)), Integer.parseInt(m.group(3))});
+        }
+        if (baseline.isEmpty()) {
+            System.out.println("CrcUtil: The baseline holds no time trial results.");
+            return null;
+        }
+        return baseline;
+    }
+
+    /**
+     * Welch's unequal-variances t-test
+     *
+     * @return the two-sided p-value of the hypothesis that both samples have the same mean
+     */
+    private static double welchTest(double mean1, double stddev1, int n1, double mean2, double stddev2, int n2) {
+        double  v1, v2, t, df;
+
+        v1 = stddev1 * stddev1 / n1;
+        v2 = stddev2 * stddev2 / n2;
+        if (v1 + v2 == 0) {
+            return mean1 == mean2 ? 1 : 0;
+        }
+        t = (mean1 - mean2) / Math.sqrt(v1 + v2);
+        df = (v1 + v2) * (v1 + v2) / (v1 * v1 / (n1 - 1) + v2 * v2 / (n2 - 1));
+        return incompleteBeta(df / (df + t * t), df / 2, 0.5);
+    }
+
+    /**
+     * Regularized incomplete beta function I<sub>x</sub>(a, b), by Lentz's continued fraction
+     */
+    private static double incompleteBeta(double x, double a, double b) {
+        double  front, c, d, f, num;
+        int     m;
+
+        if (x <= 0 || x >= 1) {
+            return x <= 0 ? 0 : 1;
+        }
+        if (x > (a + 1) / (a + b + 2)) {
+            return 1 - incompleteBeta(1 - x, b, a);
+        }
+        front = Math.exp(logGamma(a + b) - logGamma(a) - logGamma(b) + a * Math.log(x) + b * Math.log(1 - x)) / a;
+        f = 1;
+        c = 1;
+        d = 0;
+        for (int i = 0; i <= 400; i++) {
+            m = i / 2;
+            if (i == 0) {
+                num = 1;
+            } else if (i % 2 == 0) {
+                num = m * (b - m) * x / ((a + 2 * m - 1) * (a + 2 * m));
+            } else {
+                num = -(a + m) * (a + b + m) * x / ((a + 2 * m) * (a + 2 * m + 1));
+            }
+            d = 1 + num * d;
+            d = 1 / (Math.abs(d) < 1e-300 ? 1e-300 : d);
+            c = 1 + num / c;
+            c = Math.abs(c) < 1e-300 ? 1e-300 : c;
+            f *= c * d;
+            if (Math.abs(1 - c * d) < 1e-12) {
+                return front * (f - 1);
+            }
+        }
+        return front * (f - 1);
+    }
+
+    /**
+     * Natural logarithm of the gamma function, by the Lanczos approximation
+     */
+    private static double logGamma(double x) {
+        double  sum;
+        double[] g = {676.5203681218851, -1259.1392167224028, 771.32342877765313, -176.61502916214059,
+                      12.507343278686905, -0.13857109526572012, 9.9843695780195716e-6, 1.5056327351493116e-7};
+
+        if (x < 0.5) {
+            return Math.log(Math.PI / Math.abs(Math.sin(Math.PI * x))) - logGamma(1 - x);
+        }
+        x -= 1;
+        sum = 0.99999999999980993;
+        for (int i = 0; i < g.length; i++) {
+            sum += g[i] / (x + i + 1);
+        }
+        return 0.5 * Math.log(2 * Math.PI) + (x + 0.5) * Math.log(x + 7.5) - (x + 7.5) + Math.log(sum);
+    }
+
+    /**
+     * Measures the aggregate throughput of {@code Threads} threads, each checksumming its own block of {@code length} bytes
+     *
+     * @param pool    pool of at least {@code Threads} threads to run on
+     * @param length  length of each block
+     * @param Threads number of threads
+     * @param nanos   duration of each sample
+     * @param count   number of samples
+     * @return throughput of each sample in GB/s
+     */
+    private static double[] trialSamples(ExecutorService pool, int length, int Threads, long nanos, int count) {
+        double[]  samples;
+
+        samples = new double[count];
+        try {
+            for (int s = 0; s < count; s++) {
+                samples[s] = trialSample(pool, length, Threads, nanos);
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+        return samples;
+    }
+
+    /**
+     * Takes one sample of {@link CrcUtil#trialSamples}.
+     * <p>
+     * The clock starts once every thread has set up its block and checksum, so that only
+     * checksumming is measured.
+     *
+     * @return throughput in GB/s
+     */
+    private static double trialSample(ExecutorService pool, int length, int Threads, long nanos)
+            throws InterruptedException, ExecutionException {
+        long                   end, bytes;
+        long[]                 run, start;
+        CyclicBarrier          ready;
+        List<Future<long[]>>   futures;
+
+        start = new long[1];
+        ready = new CyclicBarrier(Threads, () -> start[0] = System.nanoTime());
+        futures = new ArrayList<>();
+        for (int t = 0; t < Threads; t++) {
+            futures.add(pool.submit(() -> trialRun(length, ready, start, nanos)));
+        }
+        bytes = 0;
+        end = 0;
+        for (Future<long[]> f : futures) {
+            run = f.get();
+            bytes += run[0];
+            end = Math.max(end, run[1]);
+        }
+        return bytes / (double) (end - start[0]);
+    }
+
+    /**
+     * Sets up a block of {@code length} bytes and a checksum, waits for the other threads of the
+     * sample, then checksums the block repeatedly for {@code nanos} from the start time they agree on
+     *
+     * @param start holds the start time once {@code ready} trips
+     * @return the number of bytes checksummed and the time the last block finished
+     */
+    private static long[] trialRun(int length, CyclicBarrier ready, long[] start, long nanos)
+            throws InterruptedException, BrokenBarrierException {
+        int       batch;
+        long      bytes, now, deadline;
+        byte[]    block;
+        Checksum  crc;
+
+        block = new byte[length];
+        for (int i = 0; i < length; i++) {
+            block[i] = (byte) (i & 0xFF);
+        }
+        batch = Math.max(1, 65536 / length);  // keep the clock out of the measurement for small blocks
+        crc = newChecksum();
+        bytes = 0;
+        ready.await();
+        deadline = start[0] + nanos;
+        do {
+            for (int i = 0; i < batch; i++) {
+                crc.update(block, 0, length);
+            }
+            bytes += (long) batch * length;
+            now = System.nanoTime();
+        } while (now < deadline);
+        trialSink ^= crc.getValue();
+        return new long[] {bytes, now};
+    }
+
+    /**
+     * Runs I/O benchmark
+     * <p>
+     * Generates a file of random bytes and checksums it with every read strategy and buffer size,
+     * {@link CrcUtil#BENCH_IO_RUNS} times each, warm and cold. Warm runs read through the page cache after
+     * the file has been read once. Before each cold run the file is rewritten with {@code O_DIRECT}, which
+     * drops its pages from the page cache, so that every byte comes from the device; the {@code direct}
+     * strategy, which reads with {@code O_DIRECT} and so bypasses the cache, is only run cold.
+     * Throughput and the CPU time spent per GB, by the calling thread and by the reader thread of
+     * {@code pipeline}, are reported as the mean over the runs.
+     *
+     * @param Size      size of the generated file in MiB
+     * @param Directory directory to generate the file in
+     */
+    private static void benchio(int Size, String Directory) {
+        long     length;
+        boolean  cold;
+        Path     file;
+
+        length = (long) Size << 20;
+        try {
+            file = Files.createTempFile(Paths.get(Directory), "crcutil-bench-io", ".bin");
+        } catch (IOException e) {
+            System.out.println("CrcUtil: The system cannot find the path specified.");
+            return;
+        }
+
+        try {
+            System.out.printf("%s I/O benchmark (%s engine). Generating %d MiB in %s...", label(), engineName(), Size, file.getParent());
+            benchioGenerate(file, length, false);
+            System.out.println(" done");
+            System.out.printf("%-6s %-8s %10s %12s %12s\n", "Cache", "Strategy", "Buffer", "MB/s", "CPU s/GB");
+
+            checksumStream(file, DEFAULT_BUFFER_SIZE);  // bring the file into the page cache
+            benchioStrategies("warm", file, length);
+
+            cold = true;
+            try {
+                benchioGenerate(file, length, true);
+            } catch (IOException | UnsupportedOperationException e) {
+                System.out.println("CrcUtil: The file system does not support O_DIRECT; cold runs skipped.");
+                cold = false;
+            }
+            if (cold) {
+                benchioStrategies("cold", file, length);
+                for (int BufferSize : BENCH_IO_BUFFER_SIZES) {
+                    benchioRun("cold", "direct", BufferSize, length, null, () -> checksumChannel(file, BufferSize, true));
+                }
+            }
+            System.out.println("CrcUtil: -bench-io command completed successfully.");
+        } catch (IOException e) {
+            System.out.println("CrcUtil: The system cannot read from the specified device.");
+        } finally {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                System.out.println("CrcUtil: The benchmark file could not be deleted.");
+            }
+        }
+    }
+
+    /**
+     * Times every read strategy that goes through the page cache, at every buffer size
+     *
+     * @param Cache {@code warm} to read the file from the page cache, or {@code cold} to drop it from the cache before each run
+     */
+    private static void benchioStrategies(String Cache, Path file, long length) throws IOException {
+        Path  evict;
+
+        evict = Cache.equals("cold") ? file : null;
+        for (int BufferSize : BENCH_IO_BUFFER_SIZES) {
+            benchioRun(Cache, "stream", BufferSize, length, evict, () -> checksumStream(file, BufferSize));
+        }
+        for (int BufferSize : BENCH_IO_BUFFER_SIZES) {
+            benchioRun(Cache, "channel", BufferSize, length, evict, () -> checksumChannel(file, BufferSize, false));
+        }
+        benchioRun(Cache, "mmap", MMAP_WINDOW_SIZE, length, evict, () -> {
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+                return checksumMapped(ch);
+            }
+        });
+        for (int BufferSize : BENCH_IO_BUFFER_SIZES) {
+            benchioRun(Cache, "pipeline", BufferSize, length, evict, () -> {
+                try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+                    return checksumPipelined(ch, BufferSize);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            });
+        }
+    }
+
+    /**
+     * A read strategy timed by the I/O benchmark
+     */
+    private interface IoRun {
+        long checksum() throws IOException;
+    }
+
+    /**
+     * Times one I/O benchmark configuration and prints its row
+     *
+     * @param Evict the file to drop from the page cache before each run, or {@code null}
+     */
+    private static void benchioRun(String Cache, String Strategy, long BufferSize, long length, Path Evict, IoRun run) throws IOException {
+        long          wall, cpu, start, startCpu;
+        ThreadMXBean  threads;
+
+        threads = ManagementFactory.getThreadMXBean();
+        wall = 0;
+        cpu = 0;
+        for (int r = 0; r < BENCH_IO_RUNS; r++) {
+            if (Evict != null) {
+                benchioGenerate(Evict, length, true);
+            }
+            startCpu = threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() + readerCpuTime.get() : 0;
+            start = System.nanoTime();
+            trialSink ^= run.checksum();
+            wall += System.nanoTime() - start;
+            cpu += threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() + readerCpuTime.get() - startCpu : 0;
+        }
+        System.out.printf("%-6s %-8s %10d %12.1f %12s\n", Cache, Strategy, BufferSize,
+                          length * BENCH_IO_RUNS * 1e3 / wall,
+                          threads.isCurrentThreadCpuTimeSupported() ? String.format("%.3f", cpu / (length * (double) BENCH_IO_RUNS)) : "n/a");
+    }
+
+    /**
+     * Writes {@code length} random bytes, always the same ones, to {@code file} and forces them to the device.
+     * <p>
+     * Written with {@code O_DIRECT}, the bytes bypass the page cache and the file's cached pages are
+     * dropped, which is how cold runs start from the device. {@code length} must then be a multiple
+     * of the file system's block size, as whole MiB are.
+     *
+     * @throws UnsupportedOperationException if {@code direct} and the JDK does not offer {@code O_DIRECT}
+     */
+    private static void benchioGenerate(Path file, long length, boolean direct) throws IOException {
+        byte[]      chunk;
+        Random      random;
+        ByteBuffer  buf;
+
+        chunk = new byte[RANGE_BUFFER_SIZE];
+        random = new Random(0);
+        if (direct) {
+            int block = Math.toIntExact(Files.getFileStore(file).getBlockSize());
+            buf = ByteBuffer.allocateDirect(chunk.length + block).alignedSlice(block);
+        } else {
+            buf = null;
+        }
+        try (FileChannel ch = FileChannel.open(file, direct
+                ? new OpenOption[] {StandardOpenOption.WRITE, directOption()}
+                : new OpenOption[] {StandardOpenOption.WRITE})) {
+            for (long pos = 0; pos < length; pos += chunk.length) {
+                random.nextBytes(chunk);
+                if (direct) {
+                    buf.clear().put(chunk, 0, (int) Math.min(chunk.length, length - pos)).flip();
+                    while (buf.hasRemaining()) {
+                        ch.write(buf);
+                    }
+                } else {
+                    ch.write(ByteBuffer.wrap(chunk, 0, (int) Math.min(chunk.length, length - pos)));
+                }
+            }
+            ch.force(false);
+        }
+    }
+
+    /**
+     * Runs many-files benchmark
+     * <p>
+     * Generates a tree of {@code Count} files, {@link CrcUtil#BENCH_FILES_PER_DIRECTORY} to a directory, with
+     * sizes drawn from {@code MinSize} to {@code MaxSize} bytes either uniformly or log-uniformly, then checksums
+     * every file with each way of handling many files, timing each file. The files are in the page cache,
+     * having just been written, so the figures show per-file overhead rather than device speed.
+     * <ul>
+     * <li>{@code stream}: per-file work as the default command does it: a new stream, buffer and checksum
+     *     per file and a line of output</li>
+     * <li>{@code reuse}: the same on one thread, reusing the buffer and checksum</li>
+     * <li>{@code parallel}, or {@code virtual} in virtual-thread mode: the tree checksummed as {@code -r}
+     *     does it, through {@link TreeWalk} with its batching, splitting and per-device limits</li>
+     * </ul>
+     * Output lines are formatted but discarded. Latencies of the walk are the time each file took from
+     * the moment its reading task reached it, waiting for a slot on its device included.
+     *
+     * @param Count        number of files
+     * @param MinSize      smallest file size in bytes
+     * @param MaxSize      largest file size in bytes
+     * @param Distribution {@code log} or {@code uniform}
+     * @param Threads      number of threads the walk lists directories and reads each device with
+     * @param Concurrency  number of files the walk reads at once on virtual threads, or 0
+     * @param Directory    directory to generate the tree in
+     */
+    private static void benchfiles(int Count, int MinSize, int MaxSize, String Distribution, int Threads, int Concurrency,
+                                   String Directory) {
+        long         bytes;
+        Path         root;
+        List<Path>   files;
+
+        try {
+            root = Files.createTempDirectory(Paths.get(Directory), "crcutil-bench-files");
+        } catch (IOException e) {
+            System.out.println("CrcUtil: The system cannot find the path specified.");
+            return;
+        }
+
+        files = new ArrayList<>(Count);
+        try {
+            System.out.printf("%s many-files benchmark (%s engine). Generating %d files of %d to %d bytes (%s) in %s...",
+                              label(), engineName(), Count, MinSize, MaxSize, Distribution, root);
+            bytes = benchfilesGenerate(root, Count, MinSize, MaxSize, Distribution, files);
+            System.out.printf(" done, %.1f MiB\n", bytes / 1048576.0);
+            System.out.printf("%-10s %8s %12s %10s %10s %10s\n", "Path", "Threads", "Files/s", "MB/s", "p50 us", "p99 us");
+
+            benchfilesRun("stream", files, bytes, true);
+            benchfilesRun("reuse", files, bytes, false);
+            benchfilesWalk(Concurrency > 0 ? "virtual" : "parallel", Threads, Concurrency, root, files.size(), bytes);
+            System.out.println("CrcUtil: -bench-files command completed successfully.");
+        } catch (IOException e) {
+            System.out.println("CrcUtil: The system cannot read from the specified device.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.out.println("CrcUtil: The operation was interrupted.");
+        } finally {
+            try {
+                for (Path f : files) {
+                    Files.deleteIfExists(f);
+                }
+                for (int d = (Count - 1) / BENCH_FILES_PER_DIRECTORY; d >= 0; d--) {
+                    Files.deleteIfExists(root.resolve(String.format("d%06d", d)));
+                }
+                Files.deleteIfExists(root);
+            } catch (IOException e) {
+                System.out.println("CrcUtil: The benchmark files could not be deleted.");
+            }
+        }
+    }
+
+    /**
+     * Generates the tree of the many-files benchmark, adding each file to {@code files}
+     *
+     * @return the total size of the files
+     */
+    private static long benchfilesGenerate(Path root, int Count, int MinSize, int MaxSize, String Distribution,
+                                           List<Path> files) throws IOException {
+        int      size;
+        long     bytes;
+        byte[]   content;
+        Path     dir, f;
+        Random   random;
+
+        random = new Random(0);
+        content = new byte[MaxSize];
+        bytes = 0;
+        dir = root;
+        for (int n = 0; n < Count; n++) {
+            if (n % BENCH_FILES_PER_DIRECTORY == 0) {
+                dir = Files.createDirectory(root.resolve(String.format("d%06d", n / BENCH_FILES_PER_DIRECTORY)));
+            }
+            if (Distribution.equals("uniform")) {
+                size = MinSize + (int) (random.nextDouble() * (MaxSize - MinSize + 1.0));
+            } else {
+                size = (int) Math.min(MaxSize, Math.round(MinSize * Math.pow((double) MaxSize / MinSize, random.nextDouble())));
+            }
+            random.nextBytes(content);
+            f = dir.resolve(String.format("f%06d.bin", n));
+            Files.write(f, size == content.length ? content : Arrays.copyOf(content, size));
+            files.add(f);
+            bytes += size;
+        }
+        return bytes;
+    }
+
+    /**
+     * Times one way of handling the files of the many-files benchmark on this thread and prints its row
+     *
+     * @param Name  name of the path
+     * @param fresh whether to allocate a new buffer and checksum per file, as the default command does
+     */
+    private static void benchfilesRun(String Name, List<Path> files, long bytes, boolean fresh) throws IOException {
+        long         start, wall, fileStart;
+        long[]       nanos;
+        byte[]       buf;
+        Checksum     crc;
+        PrintStream  out;
+
+        nanos = new long[files.size()];
+        out = new PrintStream(OutputStream.nullOutputStream());
+        for (int pass = 0; pass < 2; pass++) {  // the first pass warms up
+            buf = new byte[DEFAULT_BUFFER_SIZE];
+            crc = newChecksum();
+            start = System.nanoTime();
+            for (int n = 0; n < files.size(); n++) {
+                fileStart = System.nanoTime();
+                if (fresh) {
+                    buf = new byte[DEFAULT_BUFFER_SIZE];
+                    crc = newChecksum();
+                }
+                out.printf("%x  %s\n", checksumStream(files.get(n), buf, crc), files.get(n));
+                nanos[n] = System.nanoTime() - fileStart;
+            }
+            wall = System.nanoTime() - start;
+            if (pass == 1) {
+                benchfilesRow(Name, 1, files.size(), bytes, wall, nanos, nanos.length);
+            }
+        }
+    }
+
+    /**
+     * Times {@link TreeWalk} on the tree of the many-files benchmark and prints its row
+     *
+     * @param Name        name of the path
+     * @param Threads     number of threads listing directories and reading each device
+     * @param Concurrency number of files read at once on virtual threads, or 0
+     * @param Count       number of files in the tree
+     */
+    private static void benchfilesWalk(String Name, int Threads, int Concurrency, Path root, int Count, long bytes)
+            throws IOException, InterruptedException {
+        long      start, wall;
+        long[]    nanos;
+        TreeWalk  walk;
+
+        nanos = new long[Count];
+        for (int pass = 0; pass < 2; pass++) {  // the first pass warms up
+            AtomicInteger timed = new AtomicInteger();
+            walk = new TreeWalk(true, Threads, Concurrency, false, false, CrcUtil::newController, null,
+                                t -> {
+                                    int n = timed.getAndIncrement();
+                                    if (n < nanos.length) {
+                                        nanos[n] = t;
+                                    }
+                                },
+                                List.of(), List.of(), CrcUtil::newChecksum, algorithm::combine,
+                                new OrderedOutput(new PrintStream(OutputStream.nullOutputStream()), OUTPUT_BUFFER_BYTES));
+            start = System.nanoTime();
+            walk.run(List.of(root.toString()));
+            wall = System.nanoTime() - start;
+            if (walk.errors() > 0) {
+                throw new IOException();
+            }
+            if (pass == 1) {
+                benchfilesRow(Name, Concurrency > 0 ? Concurrency : Threads, walk.files(), bytes, wall, nanos,
+                              Math.min(timed.get(), nanos.length));
+            }
+        }
+    }
+
+    /**
+     * Prints a row of the many-files benchmark
+     *
+     * @param nanos the time taken by each file, in nanoseconds, in its first {@code timed} elements; sorted in place
+     */
+    private static void benchfilesRow(String Name, int Threads, long files, long bytes, long wall, long[] nanos, int timed) {
+        Arrays.sort(nanos, 0, timed);
+        System.out.printf("%-10s %8d %12.0f %10.1f %10.1f %10.1f\n", Name, Threads,
+                          files * 1e9 / wall, bytes * 1e3 / wall,
+                          nanos[(int) (timed * 0.5)] / 1e3, nanos[(int) (timed * 0.99)] / 1e3);
+    }
+
+    /**
+     * Runs small-message benchmark
+     * <p>
+     * For each message length, a single checksum is reused through {@link CrcUtil#checksum(Checksum, byte[], int, int)}
+     * for {@code Calls} individually timed calls, after as many warmup calls. Percentiles are reported with the
+     * cost of reading the clock subtracted. Bytes allocated by the thread over the timed calls, divided by
+     * {@code Calls}, show whether the hot path allocates.
+     *
+     * @param Calls number of timed calls per message length
+     */
+    private static void benchsmall(int Calls) {
+        long      timer, allocated, sink;
+        long[]    nanos;
+        byte[]    msg;
+        Checksum  crc;
+        com.sun.management.ThreadMXBean  threads;
+
+        threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        msg = new byte[BENCH_SMALL_LENGTHS[BENCH_SMALL_LENGTHS.length - 1]];
+        new Random(0).nextBytes(msg);
+        nanos = new long[Calls];
+        crc = newChecksum();
+        sink = 0;
+
+        for (int c = 0; c < Calls; c++) {
+            nanos[c] = -System.nanoTime() + System.nanoTime();
+        }
+        Arrays.sort(nanos);
+        timer = nanos[Calls / 2];
+
+        System.out.printf("%s small-message benchmark (%s engine, %d calls per length, %d ns clock overhead subtracted):\n",
+                          label(), engineName(), Calls, timer);
+        System.out.printf("%8s %10s %10s %10s %12s\n", "Length", "p50 ns", "p99 ns", "p999 ns", "Bytes/call");
+
+        for (int length : BENCH_SMALL_LENGTHS) {
+            for (int c = 0; c < Calls; c++) {
+                sink += checksum(crc, msg, 0, length);
+            }
+
+            allocated = threads.isThreadAllocatedMemorySupported() ? threads.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+            for (int c = 0; c < Calls; c++) {
+                long start = System.nanoTime();
+                sink += checksum(crc, msg, 0, length);
+                nanos[c] = System.nanoTime() - start;
+            }
+            if (allocated >= 0) {
+                allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocated;
+            }
+
+            Arrays.sort(nanos);
+            System.out.printf("%8d %10d %10d %10d %12s\n", length,
+                              Math.max(0, nanos[(int) (Calls * 0.5)] - timer),
+                              Math.max(0, nanos[(int) (Calls * 0.99)] - timer),
+                              Math.max(0, nanos[(int) (Calls * 0.999)] - timer),
+                              allocated >= 0 ? String.format("%.3f", allocated / (double) Calls) : "n/a");
+        }
+        trialSink ^= sink;
+        System.out.println("CrcUtil: -bench-small command completed successfully.");
+    }
+
+    /**
+     * Runs test script
+     */
+    private static void testsuite() {
+        System.out.printf("%s test suite:\n", label());
+        crcString("");
+        crcString("a");
+        crcString("abc");
+        crcString("cyclic redundancy check");
+        crcString("abcdefghijklmnopqrstuvwxyz");
+        crcString("ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789");
+        crcString("12345678901234567890123456789012345678901234567890123456789012345678901234567890");
+        if (!checkCatalog() | !checkEngines()) {
+            System.out.println("CrcUtil: -x command failed");
+            return;
+        }
+        System.out.println("CrcUtil: -x command completed successfully");
+    }
+
+    /**
+     * Checks every catalogued algorithm against its published check value, the checksum of "123456789"
+     *
+     * @return {@code true} if all check values match
+     */
+    private static boolean checkCatalog() {
+        boolean   ok;
+        byte[]    msg;
+        Checksum  crc;
+
+        ok = true;
+        msg = "123456789".getBytes();
+        System.out.println("Catalog check values:");
+        for (CrcModel m : CrcModel.catalog()) {
+            crc = engine.equals("jdk") && !m.hasJdkEngine() ? new SlicingCrc(m, 16) : newChecksum(m, engineName(m, engine));
+            crc.update(msg, 0, msg.length);
+            System.out.printf("%-20s = %x%s\n", m.name, crc.getValue(), crc.getValue() == m.check ? "" : " (expected " + Long.toHexString(m.check) + ")");
+            ok &= crc.getValue() == m.check;
+        }
+        return ok;
+    }
+
+    /**
+     * Checks every engine against slicing-by-16 for every catalogued algorithm, and the combine, shift
+     * and crcOfZeros operations against checksums computed directly.
+     * <p>
+     * Messages of every length up to 130 bytes, and lengths around multiples of 64 and 1024 bytes up to
+     * {@link CrcUtil#CHECK_MAX_LENGTH}, are checksummed at unaligned offsets, both in one update and
+     * split into an array, a direct buffer and another array update, so that the wide kernels and their
+     * tails all run.
+     *
+     * @return {@code true} if every engine and operation agrees
+     */
+    private static boolean checkEngines() {
+        int           off, a, b, models, mismatches, failures;
+        long          expected, crcA, crcB;
+        byte[]        msg, zeros;
+        String        resolved;
+        Checksum      ref, crc;
+        ByteBuffer    direct;
+        List<Integer> lengths;
+
+        msg = new byte[CHECK_MAX_LENGTH + 8];
+        new Random(1).nextBytes(msg);
+        direct = ByteBuffer.allocateDirect(msg.length).put(msg);
+        zeros = new byte[CHECK_MAX_LENGTH];
+        lengths = new ArrayList<>();
+        for (int n = 0; n <= CHECK_MAX_LENGTH; n++) {
+            if (n <= 130 || (n + 1) % 64 <= 2 || (n + 1) % 1024 <= 2 || n == CHECK_MAX_LENGTH) {
+                lengths.add(n);
+            }
+        }
+
+        failures = 0;
+        System.out.printf("Engine check against slice16 (%d lengths up to %d bytes):\n", lengths.size(), CHECK_MAX_LENGTH);
+        for (String e : ENGINES) {
+            if (e.equals("auto") || e.equals("slice16")) {
+                continue;
+            }
+            models = 0;
+            mismatches = 0;
+            resolved = e;
+            for (CrcModel m : CrcModel.catalog()) {
+                if (e.equals("jdk") && !m.hasJdkEngine()) {
+                    continue;
+                }
+                models++;
+                resolved = engineName(m, e);
+                ref = new SlicingCrc(m, 16);
+                crc = newChecksum(m, resolved);
+                for (int len : lengths) {
+                    off = len % 7 + 1;
+                    a = len / 3;
+                    b = 2 * len / 3;
+                    expected = checksum(ref, msg, off, len);
+                    if (checksum(crc, msg, off, len) == expected) {
+                        crc.reset();
+                        crc.update(msg, off, a);
+                        crc.update(direct.duplicate().limit(off + b).position(off + a));
+                        crc.update(msg, off + b, len - b);
+                        if (crc.getValue() == expected) {
+                            continue;
+                        }
+                    }
+                    if (++mismatches <= 3) {
+                        System.out.printf("  %s, %s engine: mismatch at length %d\n", m.name, resolved, len);
+                    }
+                }
+            }
+            System.out.printf("%-20s = %s (%d algorithms)\n", e.equals(resolved) ? e : e + " (" + resolved + ")",
+                              mismatches == 0 ? "ok" : mismatches + " mismatches", models);
+            failures += mismatches;
+        }
+
+        mismatches = 0;
+        for (CrcModel m : CrcModel.catalog()) {
+            ref = new SlicingCrc(m, 16);
+            for (int[] ab : CHECK_COMBINE_LENGTHS) {
+                crcA = checksum(ref, msg, 0, ab[0]);
+                crcB = checksum(ref, msg, ab[0], ab[1]);
+                if (m.combine(crcA, crcB, ab[1]) != checksum(ref, msg, 0, ab[0] + ab[1])
+                        || combiner(m.name, ab[1]).applyAsLong(crcA, crcB) != checksum(ref, msg, 0, ab[0] + ab[1])) {
+                    mismatches++;
+                }
+                ref.reset();
+                ref.update(msg, 0, ab[0]);
+                ref.update(zeros, 0, ab[1]);
+                if (m.shift(crcA, ab[1]) != ref.getValue() || m.crcOfZeros(ab[1]) != checksum(ref, zeros, 0, ab[1])) {
+                    mismatches++;
+                }
+            }
+        }
+        System.out.printf("%-20s = %s (%d algorithms)\n", "combine/shift/zeros",
+                          mismatches == 0 ? "ok" : mismatches + " mismatches", CrcModel.catalog().size());
+        failures += mismatches;
+        return failures == 0;
+    }
+
+    /**
+     * Checksums a string
+     * <p>
+     * NOTE: Checksumming a string is <i>not</i> buffered
+     */
+    private static void crcString(String str) {
+        crcString(str, true);
+    }
+
+    /**
+     * Like {@link CrcUtil#crcString(String)}, but can be told to produce more output
+     */
+    private static void crcString(String str, boolean quiet) {
+        Checksum crc32 = newChecksum();
+        if (verbose && !quiet) {
+            System.out.printf("CrcUtil: Strategy: in-memory, %s engine\n", engineName());
+        }
+        crc32.update(str.getBytes());
+        if (quiet) {
+            System.out.printf("\"%s\" = %x\n", str, crc32.getValue());
+        } else {
+            System.out.printf("""
+                              %s checksum of "%s":
+                              %x
+                              CrcUtil: -s command completed successfully.
+                              """, label(), str, crc32.getValue());
+        }
+    }
+
+    /**
+     * Prints the hexadecimal view of the input file to standard output
+     *
+     * @param BytesPerRow number of bytes per row
+     * @param             InFile the input file
+     */
+    private static void showBytes(int BytesPerRow, String InFile) {
+        int     i;
+        byte[]  buf;
+        int     read;
+        FileInputStream  fin;
+
+        try {
+            fin = new FileInputStream(InFile);
+        } catch (FileNotFoundException e) {
+            System.out.println("CrcUtil: The system cannot find the file specified.");
+            return;
+        }
+
+        try {
+            i = 0;
+            buf = new byte[BytesPerRow];
+            read = fin.read(buf);
+            System.out.printf("Bytes of %s:\n", InFile);
+            while (read != -1) {
+                while (i < read) {
+                    System.out.printf("%02x ", buf[i++]);
+                }
+                System.out.print("\n");
+                read = fin.read(buf);
+                i = 0;
+            }
+            System.out.println("CrcUtil: -showbytes command completed successfully");
+        } catch (IOException e) {
+            System.out.println("CrcUtil: The system cannot read from the specified device.");
+        }
+
+        try {
+            fin.close();
+        } catch (IOException e) {
+            System.out.println("CrcUtil: The input file could not be closed.");
+        }
+    }
+
+    /**
+     * Checksums a file.
+     * <p>
+     * Prints straight to {@code System.out}, as the other single-file commands do, rather than
+     * through the {@link OrderedOutput} stage of multi-file runs. One file has nothing to reorder,
+     * and its output keeps the heading-and-value layout of {@code CertUtil -hashfile} instead of the
+     * {@code crc  path} lines of {@link TreeWalk}. Messages shared by both paths, such as the error
+     * texts, must be kept the same in both.
+     *
+     * @param showupdates a boolean.
+     *                    {@code crcFile} computes the checksum incrementally utilizing an
+     *                    internal buffer. If this parameter is set to {@code true} then, apart from the
+     *                    final CRC value, the output produced will also include all intermediate values in sequence order.
+     * @param BufferSize  an integer.
+     *                    If {@code showupdates} is {@code true}, specifies the size
+     *                    (or length) of the internal buffer; otherwise, the parameter is ignored.
+     * @param InFile      the file to checksum
+     */
+    private static void crcFile(boolean showupdates, int BufferSize, String InFile) {
+        int     i;
+        byte[]  buf;
+        Checksum  crc32;
+        FileInputStream  fin;
+
+        try {
+            fin = new FileInputStream(InFile);
+        } catch (FileNotFoundException e) {
+            System.out.println("CrcUtil: The system cannot find the file specified.");
+            return;
+        }
+
+        try {
+            crc32 = newChecksum();
+            buf = new byte[BufferSize];
+
+            System.out.printf(
+                    (showupdates ? "Incremental " : "") + "%s checksum of %s:\n", label(), InFile);
+
+            if (showupdates) {
+                int upd;
+
+                upd = 0;
+                i = fin.read(buf);
+                while (i != -1) {
+                    crc32.update(buf, 0, i);
+                    System.out.printf("Update %d = %x\n", upd, crc32.getValue());
+                    upd++;
+                    i = fin.read(buf);
+                }
+            } else {
+                System.out.printf("%x\n", checksumStream(fin, buf, crc32));
+            }
+            System.out.println(
+                    "CrcUtil: " + (showupdates ? "-showupdates command " : "Command ") + "completed successfully");
+        } catch (IOException e) {
+            System.out.println("CrcUtil: The system cannot read from the specified device.");
+        }
+
+        try {
+            fin.close();
+        } catch (IOException e) {
+            System.out.println("CrcUtil: The input file could not be closed.");
+        }
+
+    }
+
+    /**
+     * Checksums several files, or whole directory trees, concurrently and prints one line per file
+     *
+     * @param Paths     the files and directories to checksum
+     * @param Recursive whether to descend into directories
+     * @param Threads   number of threads reading files
+     * @param Concurrency number of files read at once on virtual threads, or 0 to read on {@code Threads} threads
+     * @param FailFast  whether to stop at the first error
+     * @param Physical  whether to read the files on rotational disks in inode order
+     * @param Includes  globs that files found in directories must match, if any are given
+     * @param Excludes  globs that files and directories found in directories must not match
+     */
+    private static void crcFiles(List<String> Paths, boolean Recursive, int Threads, int Concurrency, boolean FailFast, boolean Physical,
+                                 List<String> Includes, List<String> Excludes) {
+        TreeWalk       walk;
+        OrderedOutput  output;
+
+        output = new OrderedOutput(System.out, OUTPUT_BUFFER_BYTES);
+        walk = new TreeWalk(Recursive, Threads, Concurrency, FailFast, Physical, CrcUtil::newController, verbose ? System.err::print : null,
+                            null, Includes, Excludes, CrcUtil::newChecksum, algorithm::combine, output);
+        try {
+            walk.run(Paths);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            output.printf("CrcUtil: The operation was interrupted.\n");
+            return;
+        }
+        if (walk.failed()) {
+            output.printf("CrcUtil: Command failed; remaining files were not checksummed\n");
+        } else if (walk.errors() > 0) {
+            output.printf("CrcUtil: %d files checksummed, %d errors\n", walk.files(), walk.errors());
+            output.printf("CrcUtil: Command failed\n");
+        } else {
+            output.printf("CrcUtil: %d files checksummed\n", walk.files());
+            output.printf("CrcUtil: Command completed successfully\n");
+        }
+    }
+
+    /**
+     * Checksums a file with the read strategy and engine best suited to its size and to this machine.
+     * <p>
+     * Small files are read sequentially. Files that would take a single thread longer than
+     * {@link CrcUtil#PARALLEL_SECONDS} are split across all processors. Files in between are
+     * memory-mapped when the engine is the jdk engine compiled to CRC instructions, which outruns
+     * the copy out of the page cache that a stream read costs; table engines are read as a stream.
+     * The engine throughput and intrinsic support this rests on come from a short calibration run,
+     * cached on disk per JVM, processor and algorithm.
+     *
+     * @param InFile the file to checksum
+     */
+    private static void crcFileAuto(String InFile) {
+        int      cores;
+        int      Threads;
+        long     size;
+        double   speed;
+        boolean  intrinsic;
+        String   Strategy;
+        File     f;
+
+        f = new File(InFile);
+        if (!f.isFile()) {
+            crcFile(false, DEFAULT_BUFFER_SIZE, InFile);  // reports the error
+            return;
+        }
+        size = f.length();
+        cores = Runtime.getRuntime().availableProcessors();
+
+        speed = 0;
+        if (size >= CALIBRATION_THRESHOLD && engine.equals("auto")) {
+            if (verbose && !Calibration.isCalibrated(algorithm)) {
+                System.out.printf("CrcUtil: Calibrating %s engines...\n", algorithm.name);
+            }
+            speed = Calibration.calibrate(algorithm, CrcUtil::newChecksum);
+        }
+
+        intrinsic = engineName().equals("jdk") && Calibration.isIntrinsified(algorithm);
+
+        Threads = (int) Math.min(cores, Math.max(1, size / MIN_RANGE_LENGTH));
+        if (Threads > 1 && speed > 0 && size / speed >= PARALLEL_SECONDS) {
+            Strategy = "parallel";
+        } else if (size >= MMAP_THRESHOLD && intrinsic) {
+            Strategy = "mmap";
+        } else {
+            Strategy = "stream";
+        }
+
+        if (verbose) {
+            System.out.printf("CrcUtil: Strategy: %s%s, %s engine%s%s\n",
+                              Strategy,
+                              Strategy.equals("parallel") ? " (" + Threads + " threads)" : "",
+                              engineName(),
+                              intrinsic ? " (intrinsic)" : "",
+                              speed > 0 ? String.format(", %.0f MB/s per thread", speed / 1e6) : "");
+        }
+
+        if (Strategy.equals("stream")) {
+            crcFile(false, DEFAULT_BUFFER_SIZE, InFile);
+        } else {
+            crcFileChannel(Strategy, Threads, InFile, null);
+        }
+    }
+
+    /**
+     * Checksums a file by splitting it into ranges that are checksummed concurrently.
+     * <p>
+     * Each range is read with positional reads on a shared channel, and the partial
+     * checksums are merged in file order with {@link CrcModel#combineOp(long, long, long)},
+     * so the result is identical to the one produced by {@link CrcUtil#crcFile(boolean, int, String)}.
+     *
+     * @param Threads number of threads to use
+     * @param InFile  the file to checksum
+     */
+    private static void crcFileParallel(int Threads, String InFile) {
+        crcFileChannel("parallel", Threads, InFile, "-parallel");
+    }
+
+    /**
+     * Checksums a file through a {@link FileChannel} with the given read strategy and prints the result
+     *
+     * @param Strategy {@code parallel}, {@code mmap} or {@code pipeline}
+     * @param Threads  number of threads, for the {@code parallel} strategy
+     * @param InFile   the file to checksum
+     * @param Command  the command reported on completion, or {@code null} for the default command
+     */
+    private static void crcFileChannel(String Strategy, int Threads, String InFile, String Command) {
+        long    crc;
+        FileChannel  ch;
+
+        try {
+            ch = FileChannel.open(Paths.get(InFile), StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            System.out.println("CrcUtil: The system cannot find the file specified.");
+            return;
+        } catch (IOException e) {
+            System.out.println("CrcUtil: The system cannot read from the specified device.");
+            return;
+        }
+
+        try {
+            System.out.printf("%s checksum of %s:\n", label(), InFile);
+            crc = Strategy.equals("mmap") ? checksumMapped(ch)
+                : Strategy.equals("pipeline") ? checksumPipelined(ch, PIPELINE_BUFFER_SIZE)
+                : checksumRanges(ch, Threads);
+            System.out.printf("%x\n", crc);
+            System.out.println(
+                    "CrcUtil: " + (Command != null ? Command + " command " : "Command ") + "completed successfully");
+        } catch (IOException e) {
+            System.out.println("CrcUtil: The system cannot read from the specified device.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.out.println("CrcUtil: The operation was interrupted.");
+        }
+
+        try {
+            ch.close();
+        } catch (IOException e) {
+            System.out.println("CrcUtil: The input file could not be closed.");
+        }
+    }
+
+    /**
+     * Checksums a channel by checksumming ranges of it concurrently and combining the results
+     *
+     * @param ch      the channel
+     * @param Threads number of threads to use
+     */
+    private static long checksumRanges(FileChannel ch, int Threads) throws IOException, InterruptedException {
+        int     n;
+        long    crc;
+        long    size;
+        long    RangeLength;
+        long    op;
+        ExecutorService  pool;
+        List<Future<Long>>  parts;
+        ConcurrencyController  limiter;
+
+        pool = Executors.newFixedThreadPool(Threads);
+        limiter = newController(Threads);
+        try {
+            size = ch.size();
+            RangeLength = Math.max(MIN_RANGE_LENGTH, (size + (long) Threads * RANGES_PER_THREAD - 1) / ((long) Threads * RANGES_PER_THREAD));
+
+            parts = new ArrayList<>();
+            for (long pos = 0; pos < size; pos += RangeLength) {
+                final long start = pos;
+                final long end = Math.min(size, pos + RangeLength);
+                parts.add(pool.submit(() -> {
+                    limiter.acquire();
+                    long t = System.nanoTime();
+                    try {
+                        return crcRange(ch, start, end);
+                    } finally {
+                        limiter.release(end - start, System.nanoTime() - t);
+                    }
+                }));
+            }
+
+            crc = newChecksum().getValue();
+            op = algorithm.combineGen(RangeLength);
+            n = 0;
+            for (long pos = 0; pos < size; pos += RangeLength) {
+                if (pos + RangeLength <= size) {
+                    crc = algorithm.combineOp(crc, parts.get(n++).get(), op);
+                } else {
+                    crc = algorithm.combine(crc, parts.get(n++).get(), size - pos);
+                }
+            }
+            return crc;
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Checksums the bytes of a channel in the range [{@code start}, {@code end}) using positional reads
+     */
+    private static long crcRange(FileChannel ch, long start, long end) throws IOException {
+        return checksumRange(ch, start, end, ByteBuffer.allocate((int) Math.min(RANGE_BUFFER_SIZE, end - start)), newChecksum());
+    }
+
+    /**
+     * Checksums a file by mapping it into memory one window at a time.
+     * <p>
+     * Each window is passed to {@link Checksum#update(ByteBuffer)} directly, avoiding the copy
+     * into a heap buffer, and is unmapped as soon as it has been consumed.
+     *
+     * @param InFile the file to checksum
+     */
+    private static void crcFileMapped(String InFile) {
+        crcFileChannel("mmap", 1, InFile, "-mmap");
+    }
+
+    /**
+     * Checksums a file with one thread reading it into a ring of buffers while another hashes them.
+     * <p>
+     * The threads hand buffers over without locks, so when reading and hashing cost about the same,
+     * the run takes about as long as the slower of the two rather than their sum.
+     *
+     * @param InFile the file to checksum
+     */
+    private static void crcFilePipelined(String InFile) {
+        crcFileChannel("pipeline", 1, InFile, "-pipeline");
+    }
+
+    /**
+     * Checksums a channel, reading it on a separate thread through a ring of buffers of the given size
+     */
+    private static long checksumPipelined(FileChannel ch, int BufferSize) throws IOException, InterruptedException {
+        Checksum      crc32;
+        ByteBuffer    buf;
+        BufferRing    ring;
+        Thread        reader;
+        ThreadMXBean  threads;
+
+        threads = ManagementFactory.getThreadMXBean();
+        ring = new BufferRing(PIPELINE_SLOTS, BufferSize);
+        reader = new Thread(() -> {
+            ByteBuffer   b;
+            IOException  failure;
+
+            failure = null;
+            try {
+                b = ring.claim();
+                while (b != null && ch.read(b) != -1) {
+                    ring.publish();
+                    b = ring.claim();
+                }
+            } catch (IOException e) {
+                failure = e;
+            } catch (RuntimeException e) {
+                failure = new IOException(e);
+            } catch (Error e) {
+                failure = new IOException(e);
+                throw e;
+            } finally {
+                if (threads.isCurrentThreadCpuTimeSupported()) {
+                    readerCpuTime.addAndGet(threads.getCurrentThreadCpuTime());
+                }
+                ring.close(failure);  // always, so that the hashing thread wakes up
+            }
+        }, "CrcUtil reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        crc32 = newChecksum();
+        try {
+            buf = ring.take();
+            while (buf != null) {
+                crc32.update(buf.array(), 0, buf.limit());
+                ring.release();
+                buf = ring.take();
+            }
+        } finally {
+            ring.cancel();
+            reader.join();
+        }
+        if (ring.failure() != null) {
+            throw ring.failure();
+        }
+        return crc32.getValue();
+    }
+
+    /**
+     * Checksums a channel through memory-mapped windows
+     */
+    private static long checksumMapped(FileChannel ch) throws IOException {
+        return checksumMapped(ch, newChecksum());
+    }
+
+    /**
+     * Checksums a file read sequentially through a {@link FileInputStream}, as the default command does
+     */
+    private static long checksumStream(Path file, int BufferSize) throws IOException {
+        return checksumStream(file, new byte[BufferSize], newChecksum());
+    }
+
+    /**
+     * Checksums a file read sequentially through a {@link FileChannel}.
+     * <p>
+     * With {@code direct}, the file is opened with {@code O_DIRECT}, bypassing the page cache, and read
+     * into a direct buffer aligned to the block size of its file store, as {@code O_DIRECT} requires.
+     *
+     * @throws UnsupportedOperationException if {@code direct} and the JDK does not offer {@code O_DIRECT}
+     */
+    private static long checksumChannel(Path file, int BufferSize, boolean direct) throws IOException {
+        int         block, limit;
+        ByteBuffer  buf;
+
+        if (direct) {
+            block = Math.toIntExact(Files.getFileStore(file).getBlockSize());
+            limit = Math.max(block, BufferSize / block * block);
+            buf = ByteBuffer.allocateDirect(limit + block).alignedSlice(block).slice(0, limit);
+        } else {
+            buf = ByteBuffer.allocate(BufferSize);
+        }
+        try (FileChannel ch = FileChannel.open(file, direct
+                ? new OpenOption[] {StandardOpenOption.READ, directOption()}
+                : new OpenOption[] {StandardOpenOption.READ})) {
+            return checksumChannel(ch, buf, newChecksum());
+        }
+    }
+
+    /**
+     * Unmaps a buffer obtained from {@link FileChannel#map}. The buffer must not be used afterwards
+     */
+    private static void unmap(MappedByteBuffer buf) {
+        if (UNMAPPER != null) {
+            try {
+                UNMAPPER.invokeExact((ByteBuffer) buf);
+            } catch (Throwable e) {
+                // left to the garbage collector
+            }
+        }
+    }
+
+    /**
+     * Looks up {@code sun.misc.Unsafe.invokeCleaner}, bound to the Unsafe instance
+     */
+    private static MethodHandle unmapper() {
+        Class<?>  unsafe;
+        Field     f;
+
+        try {
+            unsafe = Class.forName("sun.misc.Unsafe");
+            f = unsafe.getDeclaredField("theUnsafe");
+            f.setAccessible(true);
+            return MethodHandles.lookup()
+                    .findVirtual(unsafe, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(f.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+}
+
+
+////////////////////////////////////////////////////////////
+
+
+/**
+ * Base of the table-driven CRC engines.
+ * <p>
+ * Holds the register and the parameters of the algorithm, and implements everything
+ * of {@link Checksum} except the kernel that advances the register over an array,
+ * which each engine supplies. Reflected algorithms keep the register in the low bits;
+ * non-reflected ones keep it in the high bits, which lets every engine share the same
+ * 64-bit tables.
+ */
+abstract class TableCrc implements Checksum {
+
+    /**
+     * Size of the scratch buffer used for direct byte buffers
+     */
+    private static final int SCRATCH_SIZE = 8192;
+
+    final int      width;
+    final boolean  refin;
+    final boolean  refout;
+    final long     init;
+    final long     xorout;
+
+    /**
+     * Lookup tables of the engine; the first 256 entries hold the register contribution of one byte
+     */
+    final long[]   table;
+
+    private long    crc;
+    private byte[]  scratch;
+
+    /**
+     * Creates an engine for the given algorithm
+     *
+     * @param model the algorithm
+     * @param table the engine's lookup tables
+     */
+    TableCrc(CrcModel model, long[] table) {
+        this.width = model.width;
+        this.refin = model.refin;
+        this.refout = model.refout;
+        this.init = model.refin ? SlicingCrc.reflect(model.init, width) : model.init << (64 - width);
+        this.xorout = model.xorout;
+        this.table = table;
+        this.crc = this.init;
+    }
+
+    /**
+     * Advances a register past {@code len} bytes of {@code b}, whose bounds have been checked
+     *
+     * @param c the register
+     * @return the new register
+     */
+    abstract long advance(long c, byte[] b, int off, int len);
+
+    @Override
+    public void update(int b) {
+        if (refin) {
+            crc = table[(int) ((crc ^ b) & 0xff)] ^ (crc >>> 8);
+        } else {
+            crc = table[(int) (((crc >>> 56) ^ b) & 0xff)] ^ (crc << 8);
+        }
+    }
+
+    @Override
+    public void update(byte[] b, int off, int len) {
+        if (off < 0 || len < 0 || off > b.length - len) {
+            throw new ArrayIndexOutOfBoundsException();
+        }
+        crc = advance(crc, b, off, len);
+    }
+
+    @Override
+    public void update(ByteBuffer buffer) {
+        int  n;
+
+        if (buffer.hasArray()) {
+            update(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            buffer.position(buffer.limit());
+            return;
+        }
+        if (scratch == null) {
+            scratch = new byte[SCRATCH_SIZE];
+        }
+        while (buffer.hasRemaining()) {
+            n = Math.min(buffer.remaining(), scratch.length);
+            buffer.get(scratch, 0, n);
+            update(scratch, 0, n);
+        }
+    }
+
+    @Override
+    public long getValue() {
+        long  r;
+
+        r = refin ? crc : crc >>> (64 - width);
+        if (refin != refout) {
+            r = SlicingCrc.reflect(r, width);
+        }
+        return (r ^ xorout) & (-1L >>> (64 - width));
+    }
+
+    @Override
+    public void reset() {
+        crc = init;
+    }
+
+}
+
+
+////////////////////////////////////////////////////////////
+
+
+/**
+ * A table-driven CRC engine for arbitrary polynomials of width 1 through 64.
+ * <p>
+ * Input is consumed 8 or 16 bytes at a time (slicing-by-8 / slicing-by-16):
+ * each block is loaded as one {@code long} and folded into the register with
+ * one lookup per byte, so the lookups are independent of each other.
+ */
+final class SlicingCrc extends TableCrc {
+
+    /**
+     * Little-endian view of a byte array as longs
+     */
+    private static final VarHandle LE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * Big-endian view of a byte array as longs
+     */
+    private static final VarHandle BE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private final int  slices;
+
+    /**
+     * Creates an engine for the given algorithm. Its tables are shared by all engines of the algorithm,
+     * 16 tables of 256 entries laid out back to back; table {@code k} holds the register contribution
+     * of a byte followed by {@code k} zero bytes
+     *
+     * @param model  the algorithm
+     * @param slices 8 or 16
+     */
+    SlicingCrc(CrcModel model, int slices) {
+        super(model, model.tables());
+        if (slices != 8 && slices != 16) {
+            throw new IllegalArgumentException("slices");
+        }
+        this.slices = slices;
+    }
+
+    /**
+     * Builds the slicing tables
+     */
+    static long[] tables(int width, long poly, boolean refin, int slices) {
+        int     k, n, b;
+        long    c;
+        long[]  t = new long[slices * 256];
+
+        if (refin) {
+            poly = reflect(poly, width);
+            for (n = 0; n < 256; n++) {
+                c = n;
+                for (b = 0; b < 8; b++) {
+                    c = (c & 1) != 0 ? (c >>> 1) ^ poly : c >>> 1;
+                }
+                t[n] = c;
+            }
+            for (k = 1; k < slices; k++) {
+                for (n = 0; n < 256; n++) {
+                    c = t[(k - 1) * 256 + n];
+                    t[k * 256 + n] = (c >>> 8) ^ t[(int) (c & 0xff)];
+                }
+            }
+        } else {
+            poly <<= 64 - width;
+            for (n = 0; n < 256; n++) {
+                c = (long) n << 56;
+                for (b = 0; b < 8; b++) {
+                    c = c < 0 ? (c << 1) ^ poly : c << 1;
+                }
+                t[n] = c;
+            }
+            for (k = 1; k < slices; k++) {
+                for (n = 0; n < 256; n++) {
+                    c = t[(k - 1) * 256 + n];
+                    t[k * 256 + n] = (c << 8) ^ t[(int) (c >>> 56)];
+                }
+            }
+        }
+        return t;
+    }
+
+    /**
+     * Reverses the low {@code width} bits of {@code x}
+     */
+    static long reflect(long x, int width) {
+        return Long.reverse(x) >>> (64 - width);
+    }
+
+    @Override
+    long advance(long c, byte[] b, int off, int len) {
+        if (refin) {
+            return slices == 16 ? updateReflected16(c, table, b, off, len) : updateReflected8(c, table, b, off, len);
+        }
+        return slices == 16 ? updateNormal16(c, table, b, off, len) : updateNormal8(c, table, b, off, len);
+    }
+
+    /**
+     * Slicing-by-16 over a reflected register
+     */
+    private static long updateReflected16(long c, long[] t, byte[] b, int off, int len) {
+        long  d;
+
+        while (len >= 16) {
+            c ^= (long) LE.get(b, off);
+            d = (long) LE.get(b, off + 8);
+            c = t[15 * 256 + (int) (c & 0xff)]
+              ^ t[14 * 256 + (int) ((c >>> 8) & 0xff)]
+              ^ t[13 * 256 + (int) ((c >>> 16) & 0xff)]
+              ^ t[12 * 256 + (int) ((c >>> 24) & 0xff)]
+              ^ t[11 * 256 + (int) ((c >>> 32) & 0xff)]
+              ^ t[10 * 256 + (int) ((c >>> 40) & 0xff)]
+              ^ t[9 * 256 + (int) ((c >>> 48) & 0xff)]
+              ^ t[8 * 256 + (int) (c >>> 56)]
+              ^ t[7 * 256 + (int) (d & 0xff)]
+              ^ t[6 * 256 + (int) ((d >>> 8) & 0xff)]
+              ^ t[5 * 256 + (int) ((d >>> 16) & 0xff)]
+              ^ t[4 * 256 + (int) ((d >>> 24) & 0xff)]
+              ^ t[3 * 256 + (int) ((d >>> 32) & 0xff)]
+              ^ t[2 * 256 + (int) ((d >>> 40) & 0xff)]
+              ^ t[256 + (int) ((d >>> 48) & 0xff)]
+              ^ t[(int) (d >>> 56)];
+            off += 16;
+            len -= 16;
+        }
+        return updateReflected8(c, t, b, off, len);
+    }
+
+    /**
+     * Slicing-by-8 over a reflected register
+     */
+    static long updateReflected8(long c, long[] t, byte[] b, int off, int len) {
+        while (len >= 8) {
+            c ^= (long) LE.get(b, off);
+            c = t[7 * 256 + (int) (c & 0xff)]
+              ^ t[6 * 256 + (int) ((c >>> 8) & 0xff)]
+              ^ t[5 * 256 + (int) ((c >>> 16) & 0xff)]
+              ^ t[4 * 256 + (int) ((c >>> 24) & 0xff)]
+              ^ t[3 * 256 + (int) ((c >>> 32) & 0xff)]
+              ^ t[2 * 256 + (int) ((c >>> 40) & 0xff)]
+              ^ t[256 + (int) ((c >>> 48) & 0xff)]
+              ^ t[(int) (c >>> 56)];
+            off += 8;
+            len -= 8;
+        }
+        while (len-- > 0) {
+            c = t[(int) ((c ^ b[off++]) & 0xff)] ^ (c >>> 8);
+        }
+        return c;
+    }
+
+    /**
+     * Slicing-by-16 over a non-reflected, left-aligned register
+     */
+    private static long updateNormal16(long c, long[] t, byte[] b, int off, int len) {
+        long  d;
+
+        while (len >= 16) {
+            c ^= (long) BE.get(b, off);
+            d = (long) BE.get(b, off + 8);
+            c = t[15 * 256 + (int) (c >>> 56)]
+              ^ t[14 * 256 + (int) ((c >>> 48) & 0xff)]
+              ^ t[13 * 256 + (int) ((c >>> 40) & 0xff)]
+              ^ t[12 * 256 + (int) ((c >>> 32) & 0xff)]
+              ^ t[11 * 256 + (int) ((c >>> 24) & 0xff)]
+              ^ t[10 * 256 + (int) ((c >>> 16) & 0xff)]
+              ^ t[9 * 256 + (int) ((c >>> 8) & 0xff)]
+              ^ t[8 * 256 + (int) (c & 0xff)]
+              ^ t[7 * 256 + (int) (d >>> 56)]
+              ^ t[6 * 256 + (int) ((d >>> 48) & 0xff)]
+              ^ t[5 * 256 + (int) ((d >>> 40) & 0xff)]
+              ^ t[4 * 256 + (int) ((d >>> 32) & 0xff)]
+              ^ t[3 * 256 + (int) ((d >>> 24) & 0xff)]
+              ^ t[2 * 256 + (int) ((d >>> 16) & 0xff)]
+              ^ t[256 + (int) ((d >>> 8) & 0xff)]
+              ^ t[(int) (d & 0xff)];
+            off += 16;
+            len -= 16;
+        }
+        return updateNormal8(c, t, b, off, len);
+    }
+
+    /**
+     * Slicing-by-8 over a non-reflected, left-aligned register
+     */
+    static long updateNormal8(long c, long[] t, byte[] b, int off, int len) {
+        while (len >= 8) {
+            c ^= (long) BE.get(b, off);
+            c = t[7 * 256 + (int) (c >>> 56)]
+              ^ t[6 * 256 + (int) ((c >>> 48) & 0xff)]
+              ^ t[5 * 256 + (int) ((c >>> 40) & 0xff)]
+              ^ t[4 * 256 + (int) ((c >>> 32) & 0xff)]
+              ^ t[3 * 256 + (int) ((c >>> 24) & 0xff)]
+              ^ t[2 * 256 + (int) ((c >>> 16) & 0xff)]
+              ^ t[256 + (int) ((c >>> 8) & 0xff)]
+              ^ t[(int) (c & 0xff)];
+            off += 8;
+            len -= 8;
+        }
+        while (len-- > 0) {
+            c = t[(int) (((c >>> 56) ^ b[off++]) & 0xff)] ^ (c << 8);
+        }
+        return c;
+    }
+
+}
+
+
+////////////////////////////////////////////////////////////
+
+
+/**
+ * A CRC algorithm in the Rocksoft model, together with the catalog of standard algorithms.
+ * <p>
+ * Lookup tables are built the first time an engine for the algorithm is created and
+ * are shared by all engines afterwards.
+ */
+final class CrcModel {
+
+    /**
+     * Catalogued algorithms by upper-case name and alias, in catalog order
+     */
+    private static final Map<String, CrcModel> CATALOG = new LinkedHashMap<>();
+
+    /**
+     * Catalogued algorithms without aliases
+     */
+    private static final List<CrcModel> MODELS = new ArrayList<>();
+
+    static final CrcModel CRC32 = define("CRC-32/ISO-HDLC", 32, 0x04c11db7L, 0xffffffffL, true, true, 0xffffffffL, 0xcbf43926L, "CRC-32", "CRC32");
+
+    static final CrcModel CRC32C = define("CRC-32/ISCSI", 32, 0x1edc6f41L, 0xffffffffL, true, true, 0xffffffffL, 0xe3069283L, "CRC-32C", "CRC32C", "CRC-32/CASTAGNOLI", "CRC-32/INTERLAKEN");
+
+    static {
+        define("CRC-8/SMBUS", 8, 0x07, 0x00, false, false, 0x00, 0xf4, "CRC-8");
+        define("CRC-8/AUTOSAR", 8, 0x2f, 0xff, false, false, 0xff, 0xdf);
+        define("CRC-8/BLUETOOTH", 8, 0xa7, 0x00, true, true, 0x00, 0x26);
+        define("CRC-8/CDMA2000", 8, 0x9b, 0xff, false, false, 0x00, 0xda);
+        define("CRC-8/DARC", 8, 0x39, 0x00, true, true, 0x00, 0x15);
+        define("CRC-8/I-CODE", 8, 0x1d, 0xfd, false, false, 0x00, 0x7e);
+        define("CRC-8/MAXIM-DOW", 8, 0x31, 0x00, true, true, 0x00, 0xa1, "CRC-8/MAXIM", "DOW-CRC");
+        define("CRC-8/ROHC", 8, 0x07, 0xff, true, true, 0x00, 0xd0);
+        define("CRC-8/SAE-J1850", 8, 0x1d, 0xff, false, false, 0xff, 0x4b);
+        define("CRC-8/WCDMA", 8, 0x9b, 0x00, true, true, 0x00, 0x25);
+        define("CRC-16/ARC", 16, 0x8005, 0x0000, true, true, 0x0000, 0xbb3d, "CRC-16", "CRC-16/LHA");
+        define("CRC-16/DNP", 16, 0x3d65, 0x0000, true, true, 0xffff, 0xea82);
+        define("CRC-16/GENIBUS", 16, 0x1021, 0xffff, false, false, 0xffff, 0xd64e, "CRC-16/DARC", "CRC-16/EPC");
+        define("CRC-16/IBM-3740", 16, 0x1021, 0xffff, false, false, 0x0000, 0x29b1, "CRC-16/CCITT-FALSE", "CRC-16/AUTOSAR");
+        define("CRC-16/IBM-SDLC", 16, 0x1021, 0xffff, true, true, 0xffff, 0x906e, "CRC-16/X-25", "CRC-16/ISO-HDLC", "X-25");
+        define("CRC-16/KERMIT", 16, 0x1021, 0x0000, true, true, 0x0000, 0x2189, "CRC-16/CCITT", "KERMIT");
+        define("CRC-16/MAXIM-DOW", 16, 0x8005, 0x0000, true, true, 0xffff, 0x44c2, "CRC-16/MAXIM");
+        define("CRC-16/MODBUS", 16, 0x8005, 0xffff, true, true, 0x0000, 0x4b37, "MODBUS");
+        define("CRC-16/T10-DIF", 16, 0x8bb7, 0x0000, false, false, 0x0000, 0xd0db);
+        define("CRC-16/UMTS", 16, 0x8005, 0x0000, false, false, 0x0000, 0xfee8, "CRC-16/BUYPASS");
+        define("CRC-16/USB", 16, 0x8005, 0xffff, true, true, 0xffff, 0xb4c8);
+        define("CRC-16/XMODEM", 16, 0x1021, 0x0000, false, false, 0x0000, 0x31c3, "CRC-16/ACORN", "XMODEM", "ZMODEM");
+        define("CRC-24/BLE", 24, 0x00065bL, 0x555555L, true, true, 0x000000L, 0xc25a56L);
+        define("CRC-24/OPENPGP", 24, 0x864cfbL, 0xb704ceL, false, false, 0x000000L, 0x21cf02L, "CRC-24");
+        define("CRC-32/AIXM", 32, 0x814141abL, 0x00000000L, false, false, 0x00000000L, 0x3010bf7fL, "CRC-32Q");
+        define("CRC-32/AUTOSAR", 32, 0xf4acfb13L, 0xffffffffL, true, true, 0xffffffffL, 0x1697d06aL);
+        define("CRC-32/BASE91-D", 32, 0xa833982bL, 0xffffffffL, true, true, 0xffffffffL, 0x87315576L, "CRC-32D");
+        define("CRC-32/BZIP2", 32, 0x04c11db7L, 0xffffffffL, false, false, 0xffffffffL, 0xfc891918L, "CRC-32/AAL5");
+        define("CRC-32/CKSUM", 32, 0x04c11db7L, 0x00000000L, false, false, 0xffffffffL, 0x765e7680L, "CRC-32/POSIX", "CKSUM");
+        define("CRC-32/JAMCRC", 32, 0x04c11db7L, 0xffffffffL, true, true, 0x00000000L, 0x340bc6d9L, "JAMCRC");
+        define("CRC-32/MPEG-2", 32, 0x04c11db7L, 0xffffffffL, false, false, 0x00000000L, 0x0376e6e7L);
+        define("CRC-32/XFER", 32, 0x000000afL, 0x00000000L, false, false, 0x00000000L, 0xbd0be338L, "XFER");
+        define("CRC-40/GSM", 40, 0x0004820009L, 0x0000000000L, false, false, 0xffffffffffL, 0xd4164fc646L);
+        define("CRC-64/ECMA-182", 64, 0x42f0e1eba9ea3693L, 0x0000000000000000L, false, false, 0x0000000000000000L, 0x6c40df5f0b497347L, "CRC-64");
+        define("CRC-64/GO-ISO", 64, 0x000000000000001bL, 0xffffffffffffffffL, true, true, 0xffffffffffffffffL, 0xb90956c775a41001L);
+        define("CRC-64/MS", 64, 0x259c84cba6426349L, 0xffffffffffffffffL, true, true, 0x0000000000000000L, 0x75d4b74f024eceeaL);
+        define("CRC-64/NVME", 64, 0xad93d23594c93659L, 0xffffffffffffffffL, true, true, 0xffffffffffffffffL, 0xae8b14860a799888L);
+        define("CRC-64/REDIS", 64, 0xad93d23594c935a9L, 0x0000000000000000L, true, true, 0x0000000000000000L, 0xe9c6d914c4b8d9caL);
+        define("CRC-64/WE", 64, 0x42f0e1eba9ea3693L, 0xffffffffffffffffL, false, false, 0xffffffffffffffffL, 0x62ec59e3f1a4f00aL);
+        define("CRC-64/XZ", 64, 0x42f0e1eba9ea3693L, 0xffffffffffffffffL, true, true, 0xffffffffffffffffL, 0x995dc9bbdf1939faL, "CRC-64/GO-ECMA");
+    }
+
+    final String   name;
+    final int      width;
+    final long     poly;
+    final long     init;
+    final boolean  refin;
+    final boolean  refout;
+    final long     xorout;
+    final long     check;
+
+    /**
+     * Lookup tables of the engines, built on first use
+     */
+    private final Map<String, long[]> tables = new ConcurrentHashMap<>();
+
+    private CrcModel(String name, int width, long poly, long init, boolean refin, boolean refout, long xorout, long check) {
+        this.name = name;
+        this.width = width;
+        this.poly = poly;
+        this.init = init;
+        this.refin = refin;
+        this.refout = refout;
+        this.xorout = xorout;
+        this.check = check;
+    }
+
+    /**
+     * Adds an algorithm to the catalog
+     */
+    private static CrcModel define(String name, int width, long poly, long init, boolean refin, boolean refout,
+                                   long xorout, long check, String... aliases) {
+        CrcModel m = new CrcModel(name, width, poly, init, refin, refout, xorout, check);
+        MODELS.add(m);
+        CATALOG.put(name.toUpperCase(Locale.ROOT), m);
+        for (String alias : aliases) {
+            CATALOG.put(alias.toUpperCase(Locale.ROOT), m);
+        }
+        return m;
+    }
+
+    /**
+     * Looks up an algorithm by name or alias, ignoring case
+     *
+     * @return the algorithm, or {@code null} if it is not catalogued
+     */
+    static CrcModel forName(String name) {
+        return CATALOG.get(name.toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Returns all catalogued algorithms
+     */
+    static Collection<CrcModel> catalog() {
+        return MODELS;
+    }
+
+    /**
+     * Whether the JDK provides an implementation of this algorithm.
+     * The JDK implementations are intrinsified with the CPU's CRC instructions where available
+     */
+    boolean hasJdkEngine() {
+        return this == CRC32 || this == CRC32C;
+    }
+
+    /**
+     * Creates the JDK implementation of this algorithm
+     */
+    Checksum newJdkChecksum() {
+        return this == CRC32C ? new CRC32C() : new CRC32();
+    }
+
+    /**
+     * Returns the slicing-by-16 tables of this algorithm, building them on first use
+     */
+    long[] tables() {
+        return tables.computeIfAbsent("slice", k -> SlicingCrc.tables(width, poly, refin, 16));
+    }
+
+    /**
+     * Returns the tables of {@link FoldingCrc} for this algorithm, building them on first use
+     */
+    long[] foldTables() {
+        return tables.computeIfAbsent("fold", k -> SlicingCrc.tables(width, poly, refin, FoldingCrc.STRIDE));
+    }
+
+    /**
+     * Computes the checksum of two concatenated blocks given the checksum of each block
+     * and the length of the second one, as zlib's {@code crc32_combine} does for CRC-32
+     *
+     * @param crc1 checksum of the first block
+     * @param crc2 checksum of the second block
+     * @param len2 length of the second block
+     * @throws IllegalArgumentException if {@code len2} is negative
+     */
+    long combine(long crc1, long crc2, long len2) {
+        return checkLength(len2) == 0 ? crc1 : combineOp(crc1, crc2, combineGen(len2));
+    }
+
+    /**
+     * Returns the operator that {@link #combine(long, long, long)} applies for a second block
+     * of {@code len2} bytes, for use with {@link #combineOp(long, long, long)}; like zlib's {@code crc32_combine_gen}
+     */
+    long combineGen(long len2) {
+        return x2nmodp(checkLength(len2), 3);
+    }
+
+    /**
+     * Like {@link #combine(long, long, long)}, but with an operator from {@link #combineGen(long)};
+     * like zlib's {@code crc32_combine_op}
+     */
+    long combineOp(long crc1, long crc2, long op) {
+        long  reg;
+
+        // the second block's checksum already accounts for the initial value and the final XOR
+        reg = multmodp(op, toRegister(crc1) ^ SlicingCrc.reflect(init, width));
+        return (refout ? reg : SlicingCrc.reflect(reg, width)) ^ (crc2 & mask());
+    }
+
+    /**
+     * Computes the checksum of a block followed by {@code zeroBytes} zero bytes, given the checksum of the block
+     */
+    long shift(long crc, long zeroBytes) {
+        return fromRegister(multmodp(x2nmodp(checkLength(zeroBytes), 3), toRegister(crc)));
+    }
+
+    /**
+     * Computes the checksum of {@code n} zero bytes
+     */
+    long crcOfZeros(long n) {
+        return fromRegister(multmodp(x2nmodp(checkLength(n), 3), SlicingCrc.reflect(init, width)));
+    }
+
+    /**
+     * Returns a length given to the operations above, rejecting negative ones
+     */
+    private static long checkLength(long n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Negative length: " + n);
+        }
+        return n;
+    }
+
+    /**
+     * Mask of the low {@code width} bits
+     */
+    private long mask() {
+        return -1L >>> (64 - width);
+    }
+
+    /**
+     * Recovers the final register, in reflected bit order, from a checksum
+     */
+    private long toRegister(long crc) {
+        long r = (crc ^ xorout) & mask();
+        return refout ? r : SlicingCrc.reflect(r, width);
+    }
+
+    /**
+     * Turns a final register in reflected bit order into a checksum
+     */
+    private long fromRegister(long reg) {
+        return (refout ? reg : SlicingCrc.reflect(reg, width)) ^ xorout;
+    }
+
+    /**
+     * Multiplies two polynomials modulo P. Polynomials are reflected registers,
+     * so x<sup>0</sup> is the top bit of the register and x<sup>width-1</sup> the bottom one
+     */
+    private long multmodp(long a, long b) {
+        long  m, p, rpoly;
+
+        rpoly = SlicingCrc.reflect(poly, width);
+        m = 1L << (width - 1);
+        p = 0;
+        while (m != 0) {
+            if ((a & m) != 0) {
+                p ^= b;
+                if ((a & (m - 1)) == 0) {
+                    break;
+                }
+            }
+            m >>>= 1;
+            b = (b & 1) != 0 ? (b >>> 1) ^ rpoly : b >>> 1;
+        }
+        return p;
+    }
+
+    /**
+     * Returns x<sup>n 2<sup>k</sup></sup> modulo P in O(log n) multiplications
+     */
+    private long x2nmodp(long n, int k) {
+        long    p;
+        long[]  x2n;
+
+        x2n = tables.computeIfAbsent("x2n", key -> x2nTable());
+        p = 1L << (width - 1);  // x^0 == 1
+        while (n != 0) {
+            if ((n & 1) != 0) {
+                p = multmodp(x2n[k & 63], p);
+            }
+            n >>>= 1;
+            k++;
+        }
+        return p;
+    }
+
+    /**
+     * Builds the table of x<sup>2<sup>k</sup></sup> modulo P for k = 0 through 63
+     */
+    private long[] x2nTable() {
+        long    p;
+        long[]  x2n;
+
+        x2n = new long[64];
+        p = 1L << (width - 1);  // x^0 == 1, times x:
+        p = (p & 1) != 0 ? (p >>> 1) ^ SlicingCrc.reflect(poly, width) : p >>> 1;
+        x2n[0] = p;
+        for (int k = 1; k < 64; k++) {
+            x2n[k] = multmodp(x2n[k - 1], x2n[k - 1]);
+        }
+        return x2n;
+    }
+
+}
+
+
+////////////////////////////////////////////////////////////
+
+
+/**
+ * A CRC engine that folds several registers forward in parallel, aimed at wide CRCs such as CRC-64.
+ * <p>
+ * Input is consumed in strides of four 8-byte words. Each word position has its own
+ * register, and each stride folds every register past the whole stride with one set of
+ * table lookups (the tables multiply by x<sup>8k</sup> mod P), so the four dependency
+ * chains proceed independently instead of serializing on one register as slicing does.
+ * On the last stride each register is folded only up to the end of the input and the
+ * registers are XORed together. The JDK offers no carry-less multiply, so the fold
+ * operators are applied through tables rather than computed.
+ */
+final class FoldingCrc extends TableCrc {
+
+    /**
+     * Number of registers folded in parallel
+     */
+    static final int LANES = 4;
+
+    /**
+     * Number of bytes consumed per stride, which is also the number of tables
+     */
+    static final int STRIDE = LANES * 8;
+
+    /**
+     * Little-endian view of a byte array as longs
+     */
+    private static final VarHandle LE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * Big-endian view of a byte array as longs
+     */
+    private static final VarHandle BE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    /**
+     * Creates an engine for the given algorithm. Its tables are shared by all folding engines of the
+     * algorithm, {@link #STRIDE} tables of 256 entries; table {@code k} holds the register contribution
+     * of a byte followed by {@code k} zero bytes
+     */
+    FoldingCrc(CrcModel model) {
+        super(model, model.foldTables());
+    }
+
+    @Override
+    long advance(long c, byte[] b, int off, int len) {
+        int  n;
+
+        n = len - len % STRIDE;
+        if (refin) {
+            if (n > 0) {
+                c = foldReflected(c, table, b, off, n);
+            }
+            return SlicingCrc.updateReflected8(c, table, b, off + n, len - n);
+        }
+        if (n > 0) {
+            c = foldNormal(c, table, b, off, n);
+        }
+        return SlicingCrc.updateNormal8(c, table, b, off + n, len - n);
+    }
+
+    /**
+     * Folds a whole number of strides into a reflected register
+     */
+    private static long foldReflected(long c, long[] t, byte[] b, int off, int len) {
+        long  s0, s1, s2, s3;
+        int   last;
+
+        s0 = c;
+        s1 = 0;
+        s2 = 0;
+        s3 = 0;
+        last = off + len - STRIDE;
+        while (off < last) {
+            s0 = foldReflected(t, 24, s0 ^ (long) LE.get(b, off));
+            s1 = foldReflected(t, 24, s1 ^ (long) LE.get(b, off + 8));
+            s2 = foldReflected(t, 24, s2 ^ (long) LE.get(b, off + 16));
+            s3 = foldReflected(t, 24, s3 ^ (long) LE.get(b, off + 24));
+            off += STRIDE;
+        }
+        return foldReflected(t, 24, s0 ^ (long) LE.get(b, off))
+             ^ foldReflected(t, 16, s1 ^ (long) LE.get(b, off + 8))
+             ^ foldReflected(t, 8, s2 ^ (long) LE.get(b, off + 16))
+             ^ foldReflected(t, 0, s3 ^ (long) LE.get(b, off + 24));
+    }
+
+    /**
+     * Folds a whole number of strides into a non-reflected, left-aligned register
+     */
+    private static long foldNormal(long c, long[] t, byte[] b, int off, int len) {
+        long  s0, s1, s2, s3;
+        int   last;
+
+        s0 = c;
+        s1 = 0;
+        s2 = 0;
+        s3 = 0;
+        last = off + len - STRIDE;
+        while (off < last) {
+            s0 = foldNormal(t, 24, s0 ^ (long) BE.get(b, off));
+            s1 = foldNormal(t, 24, s1 ^ (long) BE.get(b, off + 8));
+            s2 = foldNormal(t, 24, s2 ^ (long) BE.get(b, off + 16));
+            s3 = foldNormal(t, 24, s3 ^ (long) BE.get(b, off + 24));
+            off += STRIDE;
+        }
+        return foldNormal(t, 24, s0 ^ (long) BE.get(b, off))
+             ^ foldNormal(t, 16, s1 ^ (long) BE.get(b, off + 8))
+             ^ foldNormal(t, 8, s2 ^ (long) BE.get(b, off + 16))
+             ^ foldNormal(t, 0, s3 ^ (long) BE.get(b, off + 24));
+    }
+
+    /**
+     * Folds 8 bytes held in a reflected register past {@code skip} further zero bytes
+     */
+    private static long foldReflected(long[] t, int skip, long x) {
+        return t[(skip + 7) * 256 + (int) (x & 0xff)]
+             ^ t[(skip + 6) * 256 + (int) ((x >>> 8) & 0xff)]
+             ^ t[(skip + 5) * 256 + (int) ((x >>> 16) & 0xff)]
+             ^ t[(skip + 4) * 256 + (int) ((x >>> 24) & 0xff)]
+             ^ t[(skip + 3) * 256 + (int) ((x >>> 32) & 0xff)]
+             ^ t[(skip + 2) * 256 + (int) ((x >>> 40) & 0xff)]
+             ^ t[(skip + 1) * 256 + (int) ((x >>> 48) & 0xff)]
+             ^ t[skip * 256 + (int) (x >>> 56)];
+    }
+
+    /**
+     * Folds 8 bytes held in a left-aligned register past {@code skip} further zero bytes
+     */
+    private static long foldNormal(long[] t, int skip, long x) {
+        return t[(skip + 7) * 256 + (int) (x >>> 56)]
+             ^ t[(skip + 6) * 256 + (int) ((x >>> 48) & 0xff)]
+             ^ t[(skip + 5) * 256 + (int) ((x >>> 40) & 0xff)]
+             ^ t[(skip + 4) * 256 + (int) ((x >>> 32) & 0xff)]
+             ^ t[(skip + 3) * 256 + (int) ((x >>> 24) & 0xff)]
+             ^ t[(skip + 2) * 256 + (int) ((x >>> 16) & 0xff)]
+             ^ t[(skip + 1) * 256 + (int) ((x >>> 8) & 0xff)]
+             ^ t[skip * 256 + (int) (x & 0xff)];
+    }
+
+}
+
+
+////////////////////////////////////////////////////////////
+
+
+/**
+ * Compiles generated Java source in memory and defines the result as a hidden class.
+ * <p>
+ * Generated sources must declare a single top-level class in the unnamed package,
+ * without nested classes. They may refer to platform classes, and to classes of this
+ * package whose declarations are passed along with the source.
+ */
+final class RuntimeCompiler {
+
+    private RuntimeCompiler() {
+    }
+
+    /**
+     * Compiles {@code source} and defines class {@code className} as a hidden class in this package
+     *
+     * @param className    the name of the class declared by {@code source}
+     * @param source       the source
+     * @param declarations sources declaring the members of this package's classes that {@code source}
+     *                     uses; they are only compiled against, since the running classes are already defined
+     * @return a full-privilege lookup on the hidden class, or {@code null} if no compiler is
+     *         available or compilation fails
+     */
+    static MethodHandles.Lookup defineHidden(String className, String source, String... declarations) {
+        JavaCompiler  javac;
+        Map<String, ByteArrayOutputStream>  classes;
+        JavaFileManager       fm;
+        List<JavaFileObject>  srcs;
+
+        javac = ToolProvider.getSystemJavaCompiler();
+        if (javac == null) {
+            return null;
+        }
+
+        classes = new HashMap<>();
+        fm = new ForwardingJavaFileManager<>(javac.getStandardFileManager(null, null, null)) {
+            @Override
+            public JavaFileObject getJavaFileForOutput(Location location, String name, JavaFileObject.Kind kind,
+                                                       FileObject sibling) {
+                return new SimpleJavaFileObject(URI.create("mem:///" + name + kind.extension), kind) {
+                    @Override
+                    public OutputStream openOutputStream() {
+                        ByteArrayOutputStream out = new ByteArrayOutputStream();
+                        classes.put(name, out);
+                        return out;
+                    }
+                };
+            }
+        };
+        srcs = new ArrayList<>();
+        srcs.add(sourceFile(className, source));
+        for (int i = 0; i < declarations.length; i++) {
+            srcs.add(sourceFile("Declarations" + i, declarations[i]));
+        }
+
+        // Closing the manager releases the jars and directories javac opened on the class path
+        try (fm) {
+            if (!javac.getTask(new StringWriter(), fm, null, List.of("-proc:none", "-nowarn", "-g:none"), null, srcs).call()
+                    || !classes.containsKey(className)) {
+                return null;
+            }
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+
+        try {
+            return MethodHandles.lookup().defineHiddenClass(classes.get(className).toByteArray(), true);
+        } catch (IllegalAccessException | RuntimeException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Wraps source text as a compilation unit named {@code name}
+     */
+    private static JavaFileObject sourceFile(String name, String source) {
+        return new SimpleJavaFileObject(URI.create("string:///" + name + ".java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+    }
+
+}
+
+
+////////////////////////////////////////////////////////////
+
+
+/**
+ * Generates a CRC class specialized for one algorithm and defines it as a hidden class.
+ * <p>
+ * The generated class is a {@link TableCrc} whose kernel implements the folding algorithm of
+ * {@link FoldingCrc}, but with the reflection and polynomial folded into its code and the tables
+ * in a {@code static final} field, so the JIT compiles each kernel without parameter branches.
+ * Classes are generated once per algorithm and shared; if no compiler is available the
+ * algorithm has no generated engine.
+ */
+final class GeneratedCrc {
+
+    /**
+     * Declarations of the classes the generated source refers to. The source is compiled against
+     * them, and the hidden class then links to the real classes of this package
+     */
+    private static final String DECLARATIONS = """
+            final class CrcModel {
+            }
+
+            abstract class TableCrc {
+
+                TableCrc(CrcModel model, long[] table) {
+                }
+
+                abstract long advance(long c, byte[] b, int off, int len);
+
+            }
+            """;
+
+    /**
+     * Constructors of the generated classes, empty where generation failed
+     */
+    private static final Map<CrcModel, Optional<MethodHandle>> CONSTRUCTORS = new ConcurrentHashMap<>();
+
+    private GeneratedCrc() {
+    }
+
+    /**
+     * Whether a class could be generated for {@code model}, generating it if necessary
+     */
+    static boolean isAvailable(CrcModel model) {
+        return constructor(model).isPresent();
+    }
+
+    /**
+     * Creates an instance of the class generated for {@code model}; requires {@link #isAvailable(CrcModel)}
+     */
+    static Checksum create(CrcModel model) {
+        try {
+            return (Checksum) constructor(model).orElseThrow().invokeExact(model);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the constructor of the class generated for {@code model}, generating it on first use
+     */
+    private static Optional<MethodHandle> constructor(CrcModel model) {
+        return CONSTRUCTORS.computeIfAbsent(model, m -> {
+            String               name;
+            MethodHandles.Lookup lookup;
+
+            name = "Crc_" + m.name.replaceAll("[^A-Za-z0-9]", "_");
+            lookup = RuntimeCompiler.defineHidden(name, source(m, name), DECLARATIONS);
+            if (lookup == null) {
+                return Optional.empty();
+            }
+            try {
+                return Optional.of(lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class, CrcModel.class))
+                                         .asType(MethodType.methodType(Checksum.class, CrcModel.class)));
+            } catch (ReflectiveOperationException e) {
+                return Optional.empty();
+            }
+        });
+    }
+
+    /**
+     * Generates the source of the class for {@code model}
+     */
+    static String source(CrcModel m, String name) {
+        String  poly, byteStep;
+
+        if (m.refin) {
+            poly = hex(SlicingCrc.reflect(m.poly, m.width));
+            byteStep = "T[(int) ((c ^ b[off++]) & 0xff)] ^ (c >>> 8)";
+        } else {
+            poly = hex(m.poly << (64 - m.width));
+            byteStep = "T[(int) (((c >>> 56) ^ b[off++]) & 0xff)] ^ (c << 8)";
+        }
+
+        return """
+                import java.lang.invoke.MethodHandles;
+                import java.lang.invoke.VarHandle;
+                import java.nio.ByteOrder;
+
+                public final class %1$s extends TableCrc {
+
+                    private static final VarHandle WORDS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.%2$s);
+
+                    private static final long[] T = tables();
+
+                    public %1$s(CrcModel model) {
+                        super(model, T);
+                    }
+
+                    private static long[] tables() {
+                        long[] t = new long[%3$d * 256];
+                        for (int n = 0; n < 256; n++) {
+                            long c = %4$s;
+                            for (int b = 0; b < 8; b++) {
+                                c = %5$s;
+                            }
+                            t[n] = c;
+                        }
+                        for (int k = 1; k < %3$d; k++) {
+                            for (int n = 0; n < 256; n++) {
+                                long c = t[(k - 1) * 256 + n];
+                                t[k * 256 + n] = %6$s;
+                            }
+                        }
+                        return t;
+                    }
+
+                    long advance(long c, byte[] b, int off, int len) {
+                        if (len >= %3$d) {
+                            long s0 = c, s1 = 0, s2 = 0, s3 = 0;
+                            int last = off + (len - len %% %3$d) - %3$d;
+                            len %%= %3$d;
+                            while (off < last) {
+                                s0 ^= (long) WORDS.get(b, off);
+                                s1 ^= (long) WORDS.get(b, off + 8);
+                                s2 ^= (long) WORDS.get(b, off + 16);
+                                s3 ^= (long) WORDS.get(b, off + 24);
+                                s0 = %7$s;
+                                s1 = %8$s;
+                                s2 = %9$s;
+                                s3 = %10$s;
+                                off += %3$d;
+                            }
+                            s0 ^= (long) WORDS.get(b, off);
+                            s1 ^= (long) WORDS.get(b, off + 8);
+                            s2 ^= (long) WORDS.get(b, off + 16);
+                            s3 ^= (long) WORDS.get(b, off + 24);
+                            c = %7$s
+                              ^ %11$s
+                              ^ %12$s
+                              ^ %13$s;
+                            off += %3$d;
+                        }
+                        while (len >= 8) {
+                            long x = c ^ (long) WORDS.get(b, off);
+                            c = %14$s;
+                            off += 8;
+                            len -= 8;
+                        }
+                        while (len-- > 0) {
+                            c = %15$s;
+                        }
+                        return c;
+                    }
+
+                }
+                """.formatted(
+                        name,
+                        m.refin ? "LITTLE_ENDIAN" : "BIG_ENDIAN",
+                        FoldingCrc.STRIDE,
+                        m.refin ? "n" : "(long) n << 56",
+                        m.refin ? "(c & 1) != 0 ? (c >>> 1) ^ " + poly + " : c >>> 1"
+                                : "c < 0 ? (c << 1) ^ " + poly + " : c << 1",
+                        m.refin ? "(c >>> 8) ^ t[(int) (c & 0xff)]" : "(c << 8) ^ t[(int) (c >>> 56)]",
+                        fold(m.refin, "s0", 24), fold(m.refin, "s1", 24), fold(m.refin, "s2", 24), fold(m.refin, "s3", 24),
+                        fold(m.refin, "s1", 16), fold(m.refin, "s2", 8), fold(m.refin, "s3", 0),
+                        fold(m.refin, "x", 0),
+                        byteStep);
+    }
+
+    /**
+     * Generates the expression folding the 8 bytes held in register {@code x} past {@code skip} zero bytes
+     */
+    private static String fold(boolean refin, String x, int skip) {
+        StringBuilder  sb;
+        int            shift;
+
+        sb = new StringBuilder();
+        for (int k = 0; k < 8; k++) {
+            shift = refin ? 8 * k : 56 - 8 * k;
+            sb.append(k == 0 ? "" : " ^ ")
+              .append("T[").append((skip + 7 - k) * 256).append(" + (int) ((").append(x).append(" >>> ").append(shift)
+              .append(") & 0xff)]");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Formats a constant as a hexadecimal long literal
+     */
+    private static String hex(long x) {
+        return "0x" + Long.toHexString(x) + "L";
+    }
+
+}
+
+
+////////////////////////////////////////////////////////////
+
+
+/**
+ * Measured single-thread throughput of the checksum engines, cached on disk.
+ * <p>
+ * Each engine is timed on an in-memory buffer for a fraction of a second the first time
+ * an algorithm needs calibrating. Results are stored in {@code ~/.crcutil/calibration.properties},
+ * keyed by JVM version, architecture, processor, algorithm and engine, so later runs reuse them.
+ * The processor is part of the key because a home directory may be shared by hosts whose
+ * CPUs run the same engines at different speeds.
+ * If the file cannot be written, results are kept for the current run only.
+ */
+final class Calibration {
+
+    /**
+     * Engines that are calibrated
+     */
+    private static final List<String> CANDIDATES = List.of("jdk", "fold", "slice16");
+
+    /**
+     * Length of the buffer checksummed during calibration
+     */
+    private static final int BUFFER_LENGTH = 262144;
+
+    /**
+     * Time spent warming up each engine, in nanoseconds
+     */
+    private static final long WARMUP_NANOS = 150000000;
+
+    /**
+     * Time spent measuring each engine, in nanoseconds
+     */
+    private static final long MEASURE_NANOS = 50000000;
+
+    /**
+     * Smallest ratio of jdk to slicing-by-16 throughput taken to mean the jdk engine is intrinsified
+     */
+    private static final double INTRINSIC_RATIO = 3.0;
+
+    /**
+     * The cache file
+     */
+    private static final Path FILE = Paths.get(System.getProperty("user.home"), ".crcutil", "calibration.properties");
+
+    /**
+     * The processor model and the number of processors available to the JVM
+     */
+    private static final String PROCESSOR = processorModel() + " x" + Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Cached results in bytes/second, loaded on first use
+     */
+    private static Properties results;
+
+    private Calibration() {
+    }
+
+    /**
+     * Whether all engines have been calibrated for {@code model}
+     */
+    static synchronized boolean isCalibrated(CrcModel model) {
+        for (String e : candidates(model)) {
+            if (load().getProperty(key(model, e)) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the fastest engine for {@code model}, or {@code null} if it has not been calibrated
+     */
+    static synchronized String best(CrcModel model) {
+        String  best;
+        double  speed, bestSpeed;
+
+        if (!isCalibrated(model)) {
+            return null;
+        }
+        best = null;
+        bestSpeed = 0;
+        for (String e : candidates(model)) {
+            speed = Double.parseDouble(load().getProperty(key(model, e)));
+            if (speed > bestSpeed) {
+                best = e;
+                bestSpeed = speed;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Calibrates the engines for {@code model} unless cached, and returns the throughput of the fastest
+     *
+     * @param model   the algorithm
+     * @param engines creates a checksum of {@code model} given the name of an engine
+     * @return throughput in bytes/second
+     */
+    static synchronized double calibrate(CrcModel model, Function<String, Checksum> engines) {
+        if (!isCalibrated(model)) {
+            for (String e : candidates(model)) {
+                if (load().getProperty(key(model, e)) == null) {
+                    load().setProperty(key(model, e), Double.toString(measure(engines.apply(e))));
+                }
+            }
+            save();
+        }
+        return Double.parseDouble(load().getProperty(key(model, best(model))));
+    }
+
+    /**
+     * Whether the JVM compiles the JDK implementation of {@code model} to CRC instructions.
+     * <p>
+     * Told from the calibration results: a JDK engine that outruns slicing-by-16 by
+     * {@link #INTRINSIC_RATIO} or more is not running a table loop. The HotSpot flag is only
+     * consulted as a positive signal, since it is a diagnostic flag that stock JVMs hide
+     * unless started with {@code -XX:+UnlockDiagnosticVMOptions}. Returns {@code false}
+     * if {@code model} has not been calibrated and the flag is hidden.
+     */
+    static synchronized boolean isIntrinsified(CrcModel model) {
+        String  jdk, table;
+
+        if (!model.hasJdkEngine()) {
+            return false;
+        }
+        if (hasIntrinsicFlag(model)) {
+            return true;
+        }
+        jdk = load().getProperty(key(model, "jdk"));
+        table = load().getProperty(key(model, "slice16"));
+        return jdk != null && table != null && Double.parseDouble(jdk) >= INTRINSIC_RATIO * Double.parseDouble(table);
+    }
+
+    /**
+     * Whether the HotSpot flag enabling the CRC intrinsic of {@code model} is visible and set
+     */
+    private static boolean hasIntrinsicFlag(CrcModel model) {
+        HotSpotDiagnosticMXBean  bean;
+
+        try {
+            bean = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+            return bean != null && Boolean.parseBoolean(
+                    bean.getVMOption(model == CrcModel.CRC32C ? "UseCRC32CIntrinsics" : "UseCRC32Intrinsics").getValue());
+        } catch (RuntimeException e) {
+            return false;  // not a HotSpot JVM, or diagnostic flags are locked
+        }
+    }
+
+    /**
+     * Measures the throughput of a checksum in bytes/second
+     */
+    private static double measure(Checksum crc) {
+        long    start, now, bytes;
+        byte[]  buf;
+
+        buf = new byte[BUFFER_LENGTH];
+        new Random(0).nextBytes(buf);
+
+        start = System.nanoTime();
+        do {
+            crc.update(buf, 0, buf.length);
+        } while (System.nanoTime() - start < WARMUP_NANOS);
+
+        bytes = 0;
+        start = System.nanoTime();
+        do {
+            crc.update(buf, 0, buf.length);
+            bytes += buf.length;
+            now = System.nanoTime();
+        } while (now - start < MEASURE_NANOS);
+        return bytes * 1e9 / (now - start);
+    }
+
+    /**
+     * Engines calibrated for {@code model}
+     */
+    private static List<String> candidates(CrcModel model) {
+        return model.hasJdkEngine() ? CANDIDATES : CANDIDATES.subList(1, CANDIDATES.size());
+    }
+
+    /**
+     * Cache key of an engine's result
+     */
+    private static String key(CrcModel model, String engine) {
+        return System.getProperty("java.vm.version") + "/" + System.getProperty("os.arch") + "/" + PROCESSOR
+                + "/" + model.name + "/" + engine;
+    }
+
+    /**
+     * Names the CPU: its model as reported by Linux or Windows, or else the host name, which
+     * at least keeps results of different hosts apart
+     */
+    private static String processorModel() {
+        String  line;
+
+        try (BufferedReader in = Files.newBufferedReader(Paths.get("/proc/cpuinfo"))) {
+            line = in.readLine();
+            while (line != null) {
+                if (line.startsWith("model name")) {
+                    return line.substring(line.indexOf(':') + 1).trim();
+                }
+                line = in.readLine();
+            }
+        } catch (IOException | RuntimeException e) {
+            // not Linux
+        }
+        line = System.getenv("PROCESSOR_IDENTIFIER");
+        if (line != null) {
+            return line;
+        }
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (IOException | RuntimeException e) {
+            return "unknown";
+        }
+    }
+
+    /**
+     * Returns the cached results, reading the cache file on first use
+     */
+    private static Properties load() {
+        if (results == null) {
+            results = new Properties();
+            try (InputStream in = Files.newInputStream(FILE)) {
+                results.load(in);
+            } catch (IOException | IllegalArgumentException e) {
+                // not calibrated yet, or unreadable: calibrate again
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Writes the cached results back to the cache file
+     */
+    private static void save() {
+        try {
+            Files.createDirectories(FILE.getParent());
+            try (OutputStream out = Files.newOutputStream(FILE)) {
+                results.store(out, "CrcUtil engine calibration, bytes/second");
+            }
+        } catch (IOException e) {
+            // keep the results for this run only
+        }
+    }
+
+}
+
+
+////////////////////////////////////////////////////////////
+
+
+/**
+ * Prints results in the order they were asked for, as soon as every earlier result is done.
+ * <p>
+ * A producer {@linkplain OrderedOutput#reserve reserves} a place in the output, then
+ * {@linkplain OrderedOutput#complete completes} it from any thread, in any order. Results that
+ * complete ahead of an earlier one are held back in a reorder buffer, whose size is capped: while it
+ * holds more than the cap, reserving blocks, which holds back whoever is producing new work.
+ * Completing never blocks, so the result that everything is waiting for can always be printed.
+ * Once the output is {@linkplain OrderedOutput#abandon abandoned} at a place, the places before it are
+ * still printed in order as they complete, followed by the text given for that place; later places
+ * print nothing, and {@link OrderedOutput#printf} prints after the abandoned place.
+ */
+final class OrderedOutput {
+
+    /**
+     * Memory accounted for each buffered result besides its text, in bytes
+     */
+    private static final int ENTRY_OVERHEAD = 64;
+
+    private final PrintStream        out;
+    private final long               capacity;
+    private final Map<Long, String>  buffered = new HashMap<>();
+
+    /**
+     * Next place to be printed
+     */
+    private long  next;
+
+    /**
+     * Next place to be reserved
+     */
+    private long  reserved;
+
+    /**
+     * Memory held by buffered results
+     */
+    private long  bytes;
+
+    /**
+     * The place the output was abandoned at, after which places are given up, or {@link Long#MAX_VALUE}
+     */
+    private volatile long  cut = Long.MAX_VALUE;
+
+    /**
+     * Text printed after the abandoned place, once it is printed
+     */
+    private final StringBuilder  trailer = new StringBuilder();
+
+    /**
+     * @param out      the stream to print to
+     * @param capacity memory the reorder buffer may hold, in bytes
+     */
+    OrderedOutput(PrintStream out, long capacity) {
+        this.out = out;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Reserves the next place in the output, waiting while the reorder buffer is over its cap
+     *
+     * @param beforeWaiting run before waiting, to make sure that earlier places will be completed
+     * @return the place, to be passed to {@link OrderedOutput#complete}
+     */
+    long reserve(Runnable beforeWaiting) throws InterruptedException {
+        synchronized (this) {
+            if (bytes <= capacity) {
+                return reserved++;
+            }
+        }
+        beforeWaiting.run();
+        synchronized (this) {
+            while (bytes > capacity) {
+                wait();
+            }
+            return reserved++;
+        }
+    }
+
+    /**
+     * Completes a reserved place with its text, printing it and any results held back behind it if it is next
+     */
+    synchronized void complete(long place, String text) {
+        if (place > cut) {
+            return;
+        }
+        if (place != next) {
+            buffered.put(place, text);
+            bytes += ENTRY_OVERHEAD + 2L * text.length();
+            return;
+        }
+        out.print(text);
+        next++;
+        while ((text = buffered.remove(next)) != null) {
+            out.print(text);
+            bytes -= ENTRY_OVERHEAD + 2L * text.length();
+            next++;
+        }
+        if (next > cut) {
+            out.print(trailer);
+            trailer.setLength(0);
+        }
+        notifyAll();
+    }
+
+    /**
+     * Prints text after everything reserved so far, for producers that work in order.
+     * After {@link OrderedOutput#abandon}, the text is printed after the abandoned place
+     */
+    void printf(String format, Object... args) {
+        long    place;
+        String  text;
+
+        text = String.format(format, args);
+        synchronized (this) {
+            if (cut != Long.MAX_VALUE) {
+                if (next > cut) {
+                    out.print(text);
+                } else {
+                    trailer.append(text);
+                }
+                return;
+            }
+            place = reserved++;
+        }
+        complete(place, text);
+    }
+
+    /**
+     * Gives up every place after {@code place}, dropping their results, and completes {@code place} with
+     * {@code text}. Places before it are printed as they complete. Abandoning again at an earlier place
+     * moves the cut there; at a later place it does nothing
+     *
+     * @return whether the output was abandoned at {@code place}
+     */
+    synchronized boolean abandon(long place, String text) {
+        Iterator<Map.Entry<Long, String>>  it;
+        Map.Entry<Long, String>            e;
+
+        if (place >= cut) {
+            return false;
+        }
+        cut = place;
+        it = buffered.entrySet().iterator();
+        while (it.hasNext()) {
+            e = it.next();
+            if (e.getKey() > place) {
+                bytes -= ENTRY_OVERHEAD + 2L * e.getValue().length();
+                it.remove();
+            }
+        }
+        complete(place, text);
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Whether the result of {@code place} will not be printed, the output having been abandoned at an earlier place
+     */
+    boolean isDropped(long place) {
+        return place > cut;
+    }
+
+    /**
+     * Waits until every reserved place has been completed and printed, or up to the abandoned place
+     */
+    synchronized void drain() throws InterruptedException {
+        while (next < reserved && next <= cut) {
+            wait();
+        }
+        out.flush();
+    }
+
+}
+
+
+////////////////////////////////////////////////////////////
+
+
+/**
+ * Checksums files and directory trees concurrently, printing results in a deterministic order.
+ * <p>
+ * Files are reported in the order the paths were given, each directory depth-first with its entries
+ * sorted by name. Directories are listed, and their entries' attributes read, ahead of time on a pool
+ * of threads; one enumerating thread walks the listings in order and gives every file its place in the
+ * {@link OrderedOutput}. The files found are gathered into a window that is handed to a work-stealing
+ * {@link ForkJoinPool} when it fills up, or sooner if the pool runs out of work. Each window is
+ * dispatched largest-first, to shorten the time until the last file finishes:
+ * <ul>
+ * <li>files of {@link TreeWalk#SPLIT_SIZE} bytes or more are split into ranges that idle threads
+ *     steal, and the range checksums are merged with CRC combination;</li>
+ * <li>files under {@link TreeWalk#BATCH_FILE_SIZE} bytes are packed into batches, so that tasks
+ *     are not dominated by scheduling overhead;</li>
+ * <li>other files are a task each.</li>
+ * </ul>
+ * The number of files found but not yet read is bounded, as are the directory listings read ahead
+ * of the enumeration and the memory held by results waiting for earlier ones, which holds memory use
+ * steady on trees of any size. Each reading thread reuses
+ * one buffer and checksum for every file it reads; on virtual threads, which each read one file, the
+ * buffers and checksums come from a pool per device no larger than the number of files read at once.
+ * <p>
+ * Files are grouped by the device they are on, as told by the {@code unix:dev} attribute, and each
+ * device has its own readers: a rotational disk, as reported under {@code /sys/dev/block}, gets
+ * {@link TreeWalk#ROTATIONAL_THREADS} threads and large reads and its files are not split, so that it
+ * is not made to seek between many streams, while other devices get the full number of threads. A
+ * walk spanning several disks thus reads from all of them at once, each at its best. In physical
+ * order, the files on a rotational disk are read by one thread in inode number order instead of by
+ * size, since file systems such as ext4 place the data of files with nearby inodes nearby on the disk.
+ * Windows are then only dispatched once they hold {@link TreeWalk#PHYSICAL_WINDOW_FILES} files, not
+ * early when the readers run out of work, so that each sorted run is long.
+ * <p>
+ * In virtual-thread mode, meant for file systems where each open and read waits on the network,
+ * every file is read on its own virtual thread instead, with up to a given number in flight, and is
+ * neither batched nor split. Where virtual threads are not available, a pool of at most
+ * {@link TreeWalk#PLATFORM_THREADS_PER_PROCESSOR} platform threads per processor is used instead,
+ * and files beyond that wait in its queue. Either way, no task outlives {@link TreeWalk#run}. With fail-fast the walk
+ * stops at the first error in output order: the files before it are still read and printed, the files after it are
+ * skipped and the tasks still reading them cancelled once the output is complete.
+ * <p>
+ * Symbolic links are followed. Every directory is entered once, recognised by its file key,
+ * so symbolic link loops end the descent. A file with several hard links is read once and its
+ * checksum reported for each link.
+ */
+final class TreeWalk {
+
+    /**
+     * Number of files gathered before they are dispatched
+     */
+    private static final int WINDOW_FILES = 1024;
+
+    /**
+     * Number of files found but not yet read beyond which the enumerator blocks
+     */
+    private static final int QUEUED_FILES = 4 * WINDOW_FILES;
+
+    /**
+     * Number of files gathered before they are dispatched in physical order: half of those that may
+     * be queued, so that one window is read while the next is gathered
+     */
+    private static final int PHYSICAL_WINDOW_FILES = QUEUED_FILES / 2;
+
+    /**
+     * Number of directory listings read ahead of the enumeration, unless there are more listing threads
+     */
+    private static final int LISTINGS_AHEAD = 8;
+
+    /**
+     * Size of files that are split into ranges
+     */
+    private static final long SPLIT_SIZE = 67108864;
+
+    /**
+     * Smallest range a split file is divided into
+     */
+    private static final long MIN_RANGE_LENGTH = 16777216;
+
+    /**
+     * Size below which files are batched
+     */
+    private static final long BATCH_FILE_SIZE = 65536;
+
+    /**
+     * Total size of the files in a batch
+     */
+    private static final long BATCH_BYTES = 1048576;
+
+    /**
+     * Size of the buffer each reading thread reads files through
+     */
+    private static final int BUFFER_SIZE = 65536;
+
+    /**
+     * Number of threads reading from a rotational disk
+     */
+    private static final int ROTATIONAL_THREADS = 2;
+
+    /**
+     * Size of the buffer files on a rotational disk are read through, so that each stream reads far
+     * ahead before the disk seeks to another
+     */
+    private static final int ROTATIONAL_BUFFER_SIZE = 1048576;
+
+    /**
+     * Number of platform threads per processor that stand in for virtual threads before Java 21
+     */
+    private static final int PLATFORM_THREADS_PER_PROCESSOR = 8;
+
+    /**
+     * Time {@link TreeWalk#run} waits for cancelled tasks to end, in seconds
+     */
+    private static final long CANCEL_TIMEOUT = 60;
+
+    /**
+     * {@code Executors.newVirtualThreadPerTaskExecutor}, or {@code null} before Java 21
+     */
+    private static final MethodHandle VIRTUAL_THREADS = virtualThreads();
+
+    /**
+     * Attributes read for each path, from the {@code unix} view if there is one
+     */
+    private static final String ATTRIBUTES = FileSystems.getDefault().supportedFileAttributeViews().contains("unix")
+            ? "unix:isDirectory,isRegularFile,size,fileKey,nlink,dev,ino" : "basic:isDirectory,isRegularFile,size,fileKey";
+
+    /**
+     * Computes the CRC of two concatenated blocks from theirs, such as {@link CrcModel#combine}
+     */
+    interface Combiner {
+        long combine(long crcA, long crcB, long lenB);
+    }
+
+    /**
+     * A path found by the walk, with its attributes, or the error met reading them
+     */
+    private static final class Entry {
+        final Path                 path;
+        final Map<String, Object>  attrs;
+        final String               error;
+        long                       place;
+        Device                     device;
+
+        Entry(Path path, Map<String, Object> attrs, String error) {
+            this.path = path;
+            this.attrs = attrs;
+            this.error = error;
+        }
+
+        long size() {
+            return (Long) attrs.get("size");
+        }
+
+        boolean is(String attribute) {
+            return attrs != null && Boolean.TRUE.equals(attrs.get(attribute));
+        }
+    }
+
+    /**
+     * A device files are read from, with readers suited to it
+     */
+    private static final class Device {
+        final String                 name;
+        final boolean                rotational;
+        final int                    threads;
+        final int                    bufferSize;
+        final ExecutorService        readers;
+        final ConcurrencyController  limiter;
+
+        /**
+         * Buffers and checksums free for reading files in virtual-thread mode, or {@code null}
+         */
+        final BlockingQueue<Scratch>  scratch;
+
+        Device(String name, boolean rotational, int threads, int bufferSize, ExecutorService readers, ConcurrencyController limiter,
+               BlockingQueue<Scratch> scratch) {
+            this.name = name;
+            this.rotational = rotational;
+            this.threads = threads;
+            this.bufferSize = bufferSize;
+            this.readers = readers;
+            this.limiter = limiter;
+            this.scratch = scratch;
+        }
+    }
+
+    /**
+     * A buffer and a checksum, reused for one file after another
+     */
+    private static final class Scratch {
+        final byte[]    buffer;
+        final Checksum  crc;
+
+        Scratch(byte[] buffer, Checksum crc) {
+            this.buffer = buffer;
+            this.crc = crc;
+        }
+    }
+
+    /**
+     * A directory being enumerated: its listing, once requested, and how far the enumeration, and the
+     * listings read ahead of it, have got
+     */
+    private static final class Directory {
+        final Path                       path;
+        CompletableFuture<List<Entry>>   listing;
+        List<Entry>                      entries;
+        List<Directory>                  subdirectories;
+        int                              next;
+        int                              listed;
+
+        Directory(Path path) {
+            this.path = path;
+        }
+    }
+
+    /**
+     * The checksum of a file with several hard links, and the number of its names not yet found
+     */
+    private static final class Link {
+        final CompletableFuture<Long>  crc = new CompletableFuture<>();
+        int                            unseen;
+
+        Link(int nlink) {
+            this.unseen = nlink;
+        }
+    }
+
+    private final boolean              recursive;
+    private final int                  threads;
+    private final int                  concurrency;
+    private final boolean              failFast;
+    private final boolean              physical;
+    private final List<PathMatcher>    includes;
+    private final List<PathMatcher>    excludes;
+    private final Combiner             combiner;
+    private final OrderedOutput        output;
+    private final ExecutorService      listers;
+    private final ExecutorService      readers;
+    private final Semaphore            queued;
+    private final IntFunction<ConcurrencyController>  limiters;
+    private final Consumer<String>     log;
+    private final LongConsumer         latencies;
+    private final ThreadLocal<byte[]>  buffers = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+    private final ThreadLocal<Checksum>  crcs;
+    private final Supplier<Checksum>   checksums;
+
+    /**
+     * Files found and not yet dispatched; guarded by itself
+     */
+    private final List<Entry>  window = new ArrayList<>();
+
+    /**
+     * Devices files have been found on, by device number
      */
-    private static void testsuite() {
-        System.out.println("CRC32 test suite:");
-        crcString("");
-        crcString("a");
-        crcString("abc");
-        crcString("cyclic redundancy check");
-        crcString("abcdefghijklmnopqrstuvwxyz");
-        crcString("ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789");
-        crcString("12345678901234567890123456789012345678901234567890123456789012345678901234567890");
-        System.out.println("CrcUtil: -x command completed successfully");
+    private final Map<Object, Device>  devices = new ConcurrentHashMap<>();
+
+    /**
+     * Directories entered so far, by file key
+     */
+    private final Map<Object, Boolean>  directories = new HashMap<>();
+
+    /**
+     * Checksums of files with several hard links, by file key, until all their names are found
+     */
+    private final Map<Object, Link>  links = new ConcurrentHashMap<>();
+
+    private final AtomicLong  files = new AtomicLong();
+    private final AtomicLong  errors = new AtomicLong();
+
+    /**
+     * Number of reading tasks dispatched and not yet finished
+     */
+    private final AtomicLong  active = new AtomicLong();
+
+    /**
+     * Whether the walk was stopped by an error in fail-fast mode
+     */
+    private volatile boolean  failed;
+
+    /**
+     * The thread running {@link TreeWalk#run}, interrupted to stop the walk
+     */
+    private volatile Thread   enumerator;
+
+    /**
+     * @param recursive whether to descend into directories
+     * @param threads   number of threads listing directories, and number reading files from each device
+     * @param concurrency number of files read at once from each device on virtual threads, or 0 to read on work-stealing pools
+     * @param failFast  whether to stop at the first error
+     * @param physical  whether to read the files on rotational disks in inode order
+     * @param limiters  creates the limit on files, or ranges of large files, read at once from a device
+     * @param log       receives a line describing each device found, or {@code null}
+     * @param latencies receives the time each file took to read, in nanoseconds, or {@code null}
+     * @param includes  globs that files found in directories must match, if any are given
+     * @param excludes  globs that files and directories found in directories must not match
+     * @param checksums creates the checksums files are read with
+     * @param combiner  combines the checksums of the ranges of a split file
+     * @param output    the stage results are printed through
+     */
+    TreeWalk(boolean recursive, int threads, int concurrency, boolean failFast, boolean physical,
+             IntFunction<ConcurrencyController> limiters, Consumer<String> log, LongConsumer latencies,
+             List<String> includes, List<String> excludes,
+             Supplier<Checksum> checksums, Combiner combiner, OrderedOutput output) {
+        this.recursive = recursive;
+        this.threads = threads;
+        this.concurrency = concurrency;
+        this.failFast = failFast;
+        this.physical = physical;
+        this.limiters = limiters;
+        this.log = log;
+        this.latencies = latencies;
+        this.includes = matchers(includes);
+        this.excludes = matchers(excludes);
+        this.crcs = ThreadLocal.withInitial(checksums);
+        this.checksums = checksums;
+        this.combiner = combiner;
+        this.output = output;
+        this.listers = Executors.newFixedThreadPool(threads);
+        if (concurrency > 0) {
+            this.readers = hasVirtualThreads() ? newVirtualThreadPerTaskExecutor() : Executors.newFixedThreadPool(
+                    Math.min(concurrency, PLATFORM_THREADS_PER_PROCESSOR * Runtime.getRuntime().availableProcessors()));
+            this.queued = new Semaphore(Math.max(QUEUED_FILES, 2 * concurrency));
+        } else {
+            this.readers = null;  // one pool per device
+            this.queued = new Semaphore(QUEUED_FILES);
+        }
+    }
+
+    /**
+     * Whether the JVM has virtual threads
+     */
+    static boolean hasVirtualThreads() {
+        return VIRTUAL_THREADS != null;
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) VIRTUAL_THREADS.invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MethodHandle virtualThreads() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                                                           MethodType.methodType(ExecutorService.class));
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Checksums the given files and the files in the given directories, and waits until all are printed
+     */
+    void run(List<String> paths) throws InterruptedException {
+        enumerator = Thread.currentThread();
+        try {
+            try {
+                for (String p : paths) {
+                    Path path = Paths.get(p);
+                    if (failed) {
+                        break;
+                    }
+                    enumerate(path, stat(path));
+                }
+            } catch (InterruptedException e) {
+                if (!failed) {
+                    throw e;
+                }
+            }
+            synchronized (this) {  // a failure interrupts the enumerator at most once, before this point
+                enumerator = null;
+            }
+            Thread.interrupted();
+            flush();  // files before a failure are still read
+            output.drain();
+        } finally {
+            synchronized (this) {  // a failure interrupts the enumerator at most once, before this point
+                enumerator = null;
+            }
+            Thread.interrupted();
+            listers.shutdownNow();
+            for (ExecutorService pool : executors()) {
+                pool.shutdownNow();
+            }
+            for (ExecutorService pool : executors()) {
+                pool.awaitTermination(CANCEL_TIMEOUT, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    /**
+     * The executors reading files
+     */
+    private List<ExecutorService> executors() {
+        List<ExecutorService> pools = new ArrayList<>();
+        if (readers != null) {
+            pools.add(readers);
+        }
+        for (Device d : devices.values()) {
+            if (d.readers != readers) {
+                pools.add(d.readers);
+            }
+        }
+        return pools;
+    }
+
+    /**
+     * Whether the walk was stopped by an error in fail-fast mode
+     */
+    boolean failed() {
+        return failed;
+    }
+
+    /**
+     * Number of files checksummed
+     */
+    long files() {
+        return files.get();
+    }
+
+    /**
+     * Number of paths that could not be checksummed
+     */
+    long errors() {
+        return errors.get();
+    }
+
+    /**
+     * Gives a path given on the command line, and everything under it, its place in the output.
+     * <p>
+     * The listings of the next subdirectories the enumeration will enter are requested ahead of it, up
+     * to {@link TreeWalk#LISTINGS_AHEAD} at a time, so that the listers work ahead of the enumeration
+     * without holding the listings of the whole tree. Which of several paths to the same directory is
+     * entered is decided when its parent's listing arrives, which keeps the decision independent of timing.
+     */
+    private void enumerate(Path root, Entry entry) throws InterruptedException {
+        int                    i, ahead;
+        Entry                  child;
+        Directory              dir, sub;
+        ArrayList<Directory>   stack;
+
+        if (entry.error != null) {
+            error(entry);
+        } else if (entry.is("isRegularFile")) {
+            file(entry);
+        } else if (!entry.is("isDirectory")) {
+            error(new Entry(entry.path, null, "Not a regular file."));
+        } else if (!recursive) {
+            error(new Entry(entry.path, null, "Is a directory; use -r to checksum the files in it."));
+        } else if (!enter(entry)) {
+            skipped(entry);
+        } else {
+            stack = new ArrayList<>();
+            stack.add(new Directory(entry.path));
+            ahead = 0;  // listings requested ahead and not yet reached
+            while (!stack.isEmpty() && !failed) {
+                dir = stack.get(stack.size() - 1);
+                if (dir.entries == null) {
+                    if (dir.listing == null) {
+                        dir.listing = list(root, dir.path);
+                    } else {
+                        ahead--;
+                    }
+                    try {
+                        dir.entries = dir.listing.join();
+                    } catch (RuntimeException e) {
+                        stack.remove(stack.size() - 1);
+                        error(new Entry(dir.path, null, "The system cannot read from the specified device."));
+                        continue;
+                    }
+                    dir.subdirectories = new ArrayList<>();
+                    for (Entry e : dir.entries) {
+                        dir.subdirectories.add(e.is("isDirectory") && enter(e) ? new Directory(e.path) : null);
+                    }
+                }
+                dir.listed = Math.max(dir.listed, dir.next);
+                while (dir.listed < dir.entries.size() && ahead < Math.max(LISTINGS_AHEAD, threads)) {
+                    sub = dir.subdirectories.get(dir.listed++);
+                    if (sub != null) {
+                        sub.listing = list(root, sub.path);
+                        ahead++;
+                    }
+                }
+                if (dir.next == dir.entries.size()) {
+                    stack.remove(stack.size() - 1);
+                    continue;
+                }
+                i = dir.next++;
+                child = dir.entries.get(i);
+                sub = dir.subdirectories.set(i, null);  // so that it is freed once enumerated
+                if (child.error != null) {
+                    error(child);
+                } else if (sub != null) {
+                    stack.add(sub);
+                } else if (child.is("isDirectory")) {
+                    skipped(child);
+                } else if (child.is("isRegularFile") && matches(root, child.path)) {
+                    file(child);
+                }
+            }
+        }
+    }
+
+    /**
+     * Records a directory as entered
+     *
+     * @return whether it is entered for the first time
+     */
+    private boolean enter(Entry dir) {
+        Object key = dir.attrs.get("fileKey");
+        return key == null || directories.putIfAbsent(key, Boolean.TRUE) == null;
+    }
+
+    /**
+     * Notes in the output that a directory was skipped because it has already been entered
+     */
+    private void skipped(Entry dir) throws InterruptedException {
+        output.complete(output.reserve(this::flush), String.format(
+                "CrcUtil: %s: Directory already visited (symbolic link loop or repeated path), skipped.\n", dir.path));
+    }
+
+    /**
+     * Lists a directory ahead of time: its entries that are not excluded, sorted by name, with their attributes
+     */
+    private CompletableFuture<List<Entry>> list(Path root, Path dir) {
+        return CompletableFuture.supplyAsync(() -> {
+            List<Path>   paths = new ArrayList<>();
+            List<Entry>  entries = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                for (Path entry : stream) {
+                    if (!excluded(root, entry)) {
+                        paths.add(entry);
+                    }
+                }
+            } catch (IOException | DirectoryIteratorException e) {
+                throw new UncheckedIOException(e instanceof IOException ? (IOException) e : ((DirectoryIteratorException) e).getCause());
+            }
+            paths.sort((x, y) -> x.getFileName().toString().compareTo(y.getFileName().toString()));
+            for (Path p : paths) {
+                entries.add(stat(p));
+            }
+            return entries;
+        }, listers);
+    }
+
+    /**
+     * Reads the attributes of a path
+     */
+    private static Entry stat(Path path) {
+        try {
+            return new Entry(path, Files.readAttributes(path, ATTRIBUTES), null);
+        } catch (NoSuchFileException e) {
+            return new Entry(path, null, "The system cannot find the file specified.");
+        } catch (IOException e) {
+            return new Entry(path, null, "The system cannot read from the specified device.");
+        }
+    }
+
+    /**
+     * Gives a file its place in the output and adds it to the window
+     */
+    private void file(Entry e) throws InterruptedException {
+        if (!queued.tryAcquire()) {
+            flush();
+            queued.acquire();
+        }
+        e.place = output.reserve(this::flush);
+        e.device = device(e);
+        synchronized (window) {
+            window.add(e);
+            if (concurrency > 0 || window.size() >= (physical ? PHYSICAL_WINDOW_FILES : WINDOW_FILES)) {
+                dispatch(true);
+            } else if (active.get() == 0 && !inPhysicalOrder(e.device)) {  // the readers are idle
+                dispatch(false);
+            }
+        }
+    }
+
+    /**
+     * The device a file is on, set up the first time a file on it is found
+     */
+    private Device device(Entry e) {
+        Object key = e.attrs.get("dev");
+        return devices.computeIfAbsent(key != null ? key : "", k -> newDevice(e.path, k));
+    }
+
+    private Device newDevice(Path path, Object key) {
+        int      n;
+        String   name;
+        boolean  rotational;
+        Device   d;
+
+        try {
+            FileStore store = Files.getFileStore(path);
+            name = String.format("%s (%s)", store.name(), store.type());
+        } catch (IOException | RuntimeException x) {
+            name = String.valueOf(path.getRoot());
+        }
+        rotational = key instanceof Long && isRotational((Long) key);
+        n = concurrency > 0 ? concurrency : threads;
+        if (rotational) {
+            n = Math.min(n, physical ? 1 : ROTATIONAL_THREADS);
+        }
+        d = new Device(name, rotational, n, rotational ? ROTATIONAL_BUFFER_SIZE : BUFFER_SIZE,
+                       concurrency > 0 ? readers : new ForkJoinPool(n), limiters.apply(n),
+                       concurrency > 0 ? new ArrayBlockingQueue<>(n) : null);
+        if (log != null) {
+            log.accept(String.format("CrcUtil: Device %s: %s, %d %s, %d-byte reads\n",
+                                     d.name, rotational ? "rotational" : "solid-state or remote",
+                                     n, concurrency > 0 ? "files at a time" : "threads", d.bufferSize));
+        }
+        return d;
+    }
+
+    /**
+     * Whether the block device with the given number is a rotational disk, as reported by Linux.
+     * Partitions report through the disk they are on; file systems without a block device, such as
+     * network and in-memory ones, count as not rotational
+     */
+    static boolean isRotational(long dev) {
+        long  major, minor;
+        Path  sys, flag;
+
+        major = ((dev >>> 8) & 0xfff) | ((dev >>> 32) & 0xfffff000L);
+        minor = (dev & 0xff) | ((dev >>> 12) & 0xffffff00L);
+        try {
+            sys = Paths.get("/sys/dev/block", major + ":" + minor).toRealPath();
+            flag = sys.resolve("queue/rotational");
+            if (!Files.exists(flag)) {  // a partition
+                flag = sys.getParent().resolve("queue/rotational");
+            }
+            return Files.readString(flag).trim().equals("1");
+        } catch (IOException | RuntimeException x) {
+            return false;
+        }
+    }
+
+    /**
+     * Dispatches the window, so that every file given a place so far will be read
+     */
+    private void flush() {
+        synchronized (window) {
+            dispatch(true);
+        }
+    }
+
+    /**
+     * Whether the files on a device are read in inode order, and so withheld until a full window can be sorted
+     */
+    private boolean inPhysicalOrder(Device device) {
+        return physical && device.rotational;
+    }
+
+    /**
+     * Hands the window to the readers of each device.
+     * The caller holds the lock on the window
+     *
+     * @param full whether to hand over all of the window, rather than keep back the files read in inode order
+     */
+    private void dispatch(boolean full) {
+        Map<Device, List<Entry>>  groups;
+
+        if (concurrency > 0) {
+            for (Entry e : window) {
+                execute(e.device, () -> read(e));
+            }
+            window.clear();
+            return;
+        }
+
+        groups = new LinkedHashMap<>();
+        for (Entry e : window) {
+            groups.computeIfAbsent(e.device, d -> new ArrayList<>()).add(e);
+        }
+        window.clear();
+        for (Map.Entry<Device, List<Entry>> g : groups.entrySet()) {
+            if (full || !inPhysicalOrder(g.getKey())) {
+                dispatch(g.getKey(), g.getValue());
+            } else {
+                window.addAll(g.getValue());
+            }
+        }
+    }
+
+    /**
+     * Hands the files on one device to its readers, largest first, with small files batched
+     */
+    private void dispatch(Device device, List<Entry> files) {
+        int          first;
+        long         bytes;
+        List<Entry>  batch;
+
+        if (inPhysicalOrder(device) && files.get(0).attrs.get("ino") != null) {
+            dispatchPhysical(device, files);
+            return;
+        }
+        files.sort((x, y) -> Long.compare(y.size(), x.size()));
+        first = 0;
+        while (first < files.size() && files.get(first).size() >= BATCH_FILE_SIZE) {
+            Entry e = files.get(first++);
+            execute(device, () -> read(e));
+        }
+        while (first < files.size()) {  // the rest are small, still largest first
+            batch = new ArrayList<>();
+            bytes = 0;
+            while (first < files.size() && (batch.isEmpty() || bytes + files.get(first).size() <= BATCH_BYTES)) {
+                bytes += files.get(first).size();
+                batch.add(files.get(first++));
+            }
+            List<Entry> small = batch;
+            execute(device, () -> {
+                for (Entry e : small) {
+                    read(e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Hands the files on a rotational disk to its readers in inode order, with runs of small files batched
+     */
+    private void dispatchPhysical(Device device, List<Entry> files) {
+        long         bytes;
+        List<Entry>  batch;
+
+        files.sort((x, y) -> Long.compare((Long) x.attrs.get("ino"), (Long) y.attrs.get("ino")));
+        batch = new ArrayList<>();
+        bytes = 0;
+        for (Entry e : files) {
+            if (!batch.isEmpty() && (e.size() >= BATCH_FILE_SIZE || bytes + e.size() > BATCH_BYTES)) {
+                List<Entry> small = batch;
+                execute(device, () -> {
+                    for (Entry s : small) {
+                        read(s);
+                    }
+                });
+                batch = new ArrayList<>();
+                bytes = 0;
+            }
+            if (e.size() >= BATCH_FILE_SIZE) {
+                execute(device, () -> read(e));
+            } else {
+                batch.add(e);
+                bytes += e.size();
+            }
+        }
+        if (!batch.isEmpty()) {
+            List<Entry> small = batch;
+            execute(device, () -> {
+                for (Entry s : small) {
+                    read(s);
+                }
+            });
+        }
+    }
+
+    /**
+     * Runs a reading task on a device's readers, counting it as active until it finishes
+     */
+    private void execute(Device device, Runnable task) {
+        active.incrementAndGet();
+        try {
+            device.readers.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    active.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {  // cancelled
+            active.decrementAndGet();
+        }
+    }
+
+    /**
+     * Checksums a file and completes its place in the output, reading each hard-linked file once
+     */
+    private void read(Entry e) {
+        long     crc, start;
+        boolean  skipped;
+        Object   key;
+        Link     mine, link;
+
+        start = System.nanoTime();
+        skipped = output.isDropped(e.place);
+        try {
+            if (skipped) {  // after the failure in fail-fast mode
+                return;
+            }
+            key = e.attrs.get("fileKey");
+            if (key != null && e.attrs.get("nlink") instanceof Integer && (Integer) e.attrs.get("nlink") > 1) {
+                mine = new Link((Integer) e.attrs.get("nlink"));
+                link = link(key, mine);
+                if (link != mine) {  // another link to the file is, or was, being read
+                    report(e, link.crc.join());
+                    return;
+                }
+                try {
+                    crc = checksum(e);
+                    mine.crc.complete(crc);
+                    report(e, crc);
+                } catch (IOException | RuntimeException x) {
+                    mine.crc.completeExceptionally(x);
+                    throw x;
+                }
+                return;
+            }
+            report(e, checksum(e));
+        } catch (IOException | RuntimeException x) {
+            error(e, "The system cannot read from the specified device.");
+        } finally {
+            if (latencies != null && !skipped) {
+                latencies.accept(System.nanoTime() - start);
+            }
+            queued.release();
+        }
+    }
+
+    /**
+     * Counts a name of a file with several hard links as found, forgetting the file once all are
+     *
+     * @param mine the link to record if it is the file's first name found
+     * @return the link recorded for the file
+     */
+    private Link link(Object key, Link mine) {
+        Link[] link = new Link[1];
+        links.compute(key, (k, l) -> {
+            link[0] = l != null ? l : mine;
+            return --link[0].unseen > 0 ? link[0] : null;
+        });
+        return link[0];
+    }
+
+    /**
+     * Checksums a whole file, splitting it into ranges checksummed in parallel if it is large
+     */
+    private long checksum(Entry e) throws IOException {
+        int        n;
+        long       crc, size, RangeLength;
+        List<ForkJoinTask<Long>>  ranges;
+
+        size = e.size();
+        if (size < SPLIT_SIZE || concurrency > 0 || e.device.rotational) {
+            long t = acquire(e.device);
+            try {
+                return checksum(e.device, e.path);
+            } finally {
+                e.device.limiter.release(size, System.nanoTime() - t);
+            }
+        }
+
+        RangeLength = Math.max(MIN_RANGE_LENGTH, (size + e.device.threads - 1) / e.device.threads);
+        try (FileChannel ch = FileChannel.open(e.path, StandardOpenOption.READ)) {
+            ranges = new ArrayList<>();
+            for (long pos = 0; pos < size; pos += RangeLength) {
+                final long start = pos;
+                final long end = Math.min(size, pos + RangeLength);
+                ranges.add(ForkJoinTask.adapt(() -> checksum(e.device, ch, start, end)));
+            }
+            ForkJoinTask.invokeAll(ranges);
+            crc = ranges.get(0).join();
+            n = 1;
+            for (long pos = RangeLength; pos < size; pos += RangeLength) {
+                crc = combiner.combine(crc, ranges.get(n++).join(), Math.min(RangeLength, size - pos));
+            }
+            return crc;
+        } catch (RuntimeException x) {  // adapted tasks wrap their exceptions
+            if (x.getCause() instanceof IOException) {
+                throw (IOException) x.getCause();
+            }
+            throw x;
+        }
+    }
+
+    /**
+     * Checksums a whole file, as the default command reads files, with this thread's buffer and checksum,
+     * or in virtual-thread mode with ones from the device's pool. The caller holds a slot on the device,
+     * so that no more are taken from the pool than there are slots
+     */
+    private long checksum(Device device, Path path) throws IOException {
+        Scratch  s;
+
+        if (device.scratch == null) {
+            return CrcUtil.checksumStream(path, buffer(device.bufferSize), crcs.get());
+        }
+        s = device.scratch.poll();
+        if (s == null) {
+            s = new Scratch(new byte[device.bufferSize], checksums.get());
+        }
+        try {
+            return CrcUtil.checksumStream(path, s.buffer, s.crc);
+        } finally {
+            device.scratch.offer(s);
+        }
+    }
+
+    /**
+     * Checksums the bytes of a channel in the range [{@code start}, {@code end}) with this thread's buffer and checksum
+     */
+    private long checksum(Device device, FileChannel ch, long start, long end) throws IOException {
+        long  t;
+
+        t = acquire(device);
+        try {
+            return CrcUtil.checksumRange(ch, start, end, ByteBuffer.wrap(buffer(device.bufferSize)), crcs.get());
+        } finally {
+            device.limiter.release(end - start, System.nanoTime() - t);
+        }
+    }
+
+    /**
+     * This thread's buffer, sized for the device being read
+     */
+    private byte[] buffer(int size) {
+        byte[] buf = buffers.get();
+        if (buf.length != size) {
+            buf = new byte[size];
+            buffers.set(buf);
+        }
+        return buf;
+    }
+
+    /**
+     * Waits for a slot to read from a device in, and returns the time it was granted
+     */
+    private long acquire(Device device) throws InterruptedIOException {
+        try {
+            device.limiter.acquire();
+        } catch (InterruptedException x) {  // cancelled
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        return System.nanoTime();
+    }
+
+    private void report(Entry e, long crc) {
+        files.incrementAndGet();
+        output.complete(e.place, String.format("%x  %s\n", crc, e.path));
     }
 
     /**
-     * Checksums a string
-     * <p>
-     * NOTE: Checksumming a string is <i>not</i> buffered
+     * Completes the place of a file that could not be read with an error
      */
-    private static void crcString(String str) {
-        crcString(str, true);
+    private void error(Entry e, String message) {
+        errors.incrementAndGet();
+        if (failFast) {
+            fail(e.place, String.format("CrcUtil: %s: %s\n", e.path, message));
+        } else {
+            output.complete(e.place, String.format("CrcUtil: %s: %s\n", e.path, message));
+        }
     }
 
     /**
-     * Like {@link CrcUtil#crcString(String)}, but can be told to produce more output
+     * Reports an error met while enumerating, in its place in the output
      */
-    private static void crcString(String str, boolean quiet) {
-        CRC32 crc32 = new CRC32();
-        crc32.update(str.getBytes());
-        if (quiet) {
-            System.out.printf("\"%s\" = %x\n", str, crc32.getValue());
+    private void error(Entry e) throws InterruptedException {
+        errors.incrementAndGet();
+        if (failFast) {
+            fail(output.reserve(this::flush), String.format("CrcUtil: %s: %s\n", e.path, e.error));
         } else {
-            System.out.printf("""
-                              CRC32 checksum of "%s":
-                              %x
-                              CrcUtil: -s command completed successfully.
-                              """, str, crc32.getValue());
+            output.complete(output.reserve(this::flush), String.format("CrcUtil: %s: %s\n", e.path, e.error));
         }
     }
 
     /**
-     * Prints the hexadecimal view of the input file to standard output
+     * Stops the walk at the first error in output order: the files before it are still read and printed,
+     * then the error, while the files after it are skipped and the enumeration is interrupted. An error at
+     * an earlier place than one already met takes its place, so the output does not depend on timing
      *
-     * @param BytesPerRow number of bytes per row
-     * @param             InFile the input file
+     * @param place the place of the file the error is reported for
      */
-    private static void showBytes(int BytesPerRow, String InFile) {
-        int     i;
-        byte[]  buf;
-        int     read;
-        FileInputStream  fin;
-
-        try {
-            fin = new FileInputStream(InFile);
-        } catch (FileNotFoundException e) {
-            System.out.println("CrcUtil: The system cannot find the file specified.");
+    private synchronized void fail(long place, String text) {
+        if (!output.abandon(place, text) || failed) {
             return;
         }
+        failed = true;
+        if (enumerator != null) {
+            enumerator.interrupt();
+        }
+    }
 
-        try {
-            i = 0;
-            buf = new byte[BytesPerRow];
-            read = fin.read(buf);
-            System.out.printf("Bytes of %s:\n", InFile);
-            while (read != -1) {
-                while (i < read) {
-                    System.out.printf("%02x ", buf[i++]);
-                }
-                System.out.print("\n");
-                read = fin.read(buf);
-                i = 0;
-            }
-            System.out.println("CrcUtil: -showbytes command completed successfully");
-        } catch (IOException e) {
-            System.out.println("CrcUtil: The system cannot read from the specified device.");
+    /**
+     * Whether a file found in a directory passes the include and exclude globs
+     */
+    private boolean matches(Path root, Path path) {
+        Path relative = root.relativize(path);
+        if (!includes.isEmpty() && includes.stream().noneMatch(m -> match(m, relative))) {
+            return false;
         }
+        return !excluded(root, path);
+    }
 
-        try {
-            fin.close();
-        } catch (IOException e) {
-            System.out.println("CrcUtil: The input file could not be closed.");
+    /**
+     * Whether a path found in a directory matches an exclude glob
+     */
+    private boolean excluded(Path root, Path path) {
+        Path relative = root.relativize(path);
+        return excludes.stream().anyMatch(m -> match(m, relative));
+    }
+
+    /**
+     * Matches a glob against a relative path, or against its file name
+     */
+    private static boolean match(PathMatcher m, Path relative) {
+        return m.matches(relative) || relative.getFileName() != null && m.matches(relative.getFileName());
+    }
+
+    private static List<PathMatcher> matchers(List<String> globs) {
+        List<PathMatcher> matchers = new ArrayList<>();
+        for (String glob : globs) {
+            matchers.add(FileSystems.getDefault().getPathMatcher("glob:" + glob));
+        }
+        return matchers;
+    }
+
+}
+
+
+////////////////////////////////////////////////////////////
+
+
+/**
+ * Limits the number of reads in flight, and optionally tunes that limit to the throughput it measures
+ * with additive increase and multiplicative decrease.
+ * <p>
+ * Each read reports the bytes it read and the time it took. Once per sample interval the controller
+ * compares the bytes per second read in the interval, and the time readers spent per megabyte, with
+ * the interval before. If the time per megabyte rose without a matching gain in throughput, the extra
+ * reads were only queueing in the device or the network, and the limit is cut by a quarter. Otherwise,
+ * if reads had to wait for a slot, the limit grows by one to probe for more throughput.
+ */
+final class ConcurrencyController {
+
+    /**
+     * Length of a sample interval, in nanoseconds
+     */
+    private static final long SAMPLE_NANOS = 200_000_000L;
+
+    /**
+     * Relative gain in throughput that justifies a rise in time per megabyte
+     */
+    private static final double GAIN = 0.05;
+
+    /**
+     * Relative rise in time per megabyte taken as a sign of queueing
+     */
+    private static final double LATENCY_RISE = 0.2;
+
+    /**
+     * Factor the limit is cut by on queueing
+     */
+    private static final double BACKOFF = 0.75;
+
+    private final int               min;
+    private final int               max;
+    private final Consumer<String>  log;
+
+    private int      limit;
+    private int      inFlight;
+    private boolean  saturated;
+
+    private long     start = System.nanoTime();
+    private long     bytes;
+    private long     busy;
+    private double   lastThroughput = Double.NaN;
+    private double   lastLatency = Double.NaN;
+
+    /**
+     * @param limit the initial number of reads allowed at once
+     * @param min   the lowest the limit may be tuned to
+     * @param max   the highest the limit may be tuned to; when equal to {@code min}, the limit is fixed
+     * @param log   receives a line for each decision, or {@code null}
+     */
+    ConcurrencyController(int limit, int min, int max, Consumer<String> log) {
+        this.limit = limit;
+        this.min = min;
+        this.max = max;
+        this.log = log;
+    }
+
+    /**
+     * Waits until a read may start
+     */
+    synchronized void acquire() throws InterruptedException {
+        if (inFlight >= limit) {
+            saturated = true;
         }
+        while (inFlight >= limit) {
+            wait();
+        }
+        inFlight++;
     }
 
     /**
-     * Checksums a file.
-     *
-     * @param showupdates a boolean.
-     *                    {@code crcFile} computes the checksum incrementally utilizing an
-     *                    internal buffer. If this parameter is set to {@code true} then, apart from the
-     *                    final CRC value, the output produced will also include all intermediate values in sequence order.
-     * @param BufferSize  an integer.
-     *                    If {@code showupdates} is {@code true}, specifies the size
-     *                    (or length) of the internal buffer; otherwise, the parameter is ignored.
-     * @param InFile      the file to checksum
+     * Ends a read, recording its length and duration, and adjusts the limit at the end of a sample interval
      */
-    private static void crcFile(boolean showupdates, int BufferSize, String InFile) {
-        int     i;
-        byte[]  buf;
-        CRC32   crc32;
-        FileInputStream  fin;
+    synchronized void release(long length, long nanos) {
+        long now;
 
-        try {
-            fin = new FileInputStream(InFile);
-        } catch (FileNotFoundException e) {
-            System.out.println("CrcUtil: The system cannot find the file specified.");
+        inFlight--;
+        bytes += length;
+        busy += nanos;
+        now = System.nanoTime();
+        if (min < max && now - start >= SAMPLE_NANOS) {
+            adjust(now);
+        }
+        notifyAll();
+    }
+
+    /**
+     * The number of reads currently allowed at once
+     */
+    synchronized int limit() {
+        return limit;
+    }
+
+    private void adjust(long now) {
+        int     old;
+        double  throughput;
+        double  latency;
+        String  decision;
+
+        if (bytes == 0) {  // nothing to go on
             return;
         }
+        throughput = bytes * 1e9 / (now - start);
+        latency = busy / 1e6 / (bytes / 1e6);
+        old = limit;
+        if (latency > lastLatency * (1 + LATENCY_RISE) && throughput < lastThroughput * (1 + GAIN)) {
+            limit = Math.max(min, (int) (limit * BACKOFF));
+            decision = "back off";
+        } else if (saturated && limit < max) {
+            limit++;
+            decision = "probe";
+        } else {
+            decision = "hold";
+        }
+        if (log != null) {
+            log.accept(String.format("CrcUtil: Concurrency %d -> %d (%s): %.1f MB/s, %.2f ms per MB\n",
+                                     old, limit, decision, throughput / 1e6, latency));
+        }
+        lastThroughput = throughput;
+        lastLatency = latency;
+        start = now;
+        bytes = 0;
+        busy = 0;
+        saturated = false;
+    }
+}
+
+
+////////////////////////////////////////////////////////////
+
+
+/**
+ * A ring of preallocated buffers passed from one producing thread to one consuming thread without locks.
+ * <p>
+ * The producer fills the buffer at the tail and publishes it; the consumer takes the buffer at the head
+ * and releases it once consumed. Each side only writes its own counter, with release semantics, and reads
+ * the other's with acquire semantics, which is all the ordering a single producer and a single consumer
+ * need. A side that finds the ring full or empty spins briefly if there is another processor to run the
+ * other side, then parks until the other side publishes or releases a buffer and unparks it, so that a
+ * waiting thread neither takes the processor from the one it waits for nor oversleeps the buffer it waits for.
+ * <p>
+ * The counters live in superclasses, between padding superclasses, because the JVM lays out the fields
+ * of a superclass before those of its subclasses but is free to reorder the fields within one class.
+ */
+final class BufferRing extends RingPad2 {
+
+    /**
+     * Number of times a waiting side spins before it parks; none on a single processor, where the side
+     * it waits for cannot run while it spins
+     */
+    private static final int SPINS = Runtime.getRuntime().availableProcessors() > 1 ? 256 : 0;
+
+    private final ByteBuffer[]  slots;
+
+    private volatile boolean      closed;
+    private volatile boolean      cancelled;
+    private volatile IOException  failure;
+
+    /**
+     * The producer while it is parked waiting for a free buffer, or {@code null}
+     */
+    private volatile Thread  producer;
+
+    /**
+     * The consumer while it is parked waiting for a published buffer, or {@code null}
+     */
+    private volatile Thread  consumer;
+
+    /**
+     * @param slots      the number of buffers
+     * @param bufferSize the size of each buffer
+     */
+    BufferRing(int slots, int bufferSize) {
+        this.slots = new ByteBuffer[slots];
+        for (int i = 0; i < slots; i++) {
+            this.slots[i] = ByteBuffer.allocate(bufferSize);
+        }
+    }
 
-        try {
-            crc32 = new CRC32();
-            buf = new byte[BufferSize];
+    /**
+     * Producer: waits for a free buffer and returns it cleared, or returns {@code null} if the consumer has cancelled
+     */
+    ByteBuffer claim() {
+        long  t;
+        int   spins;
 
-            System.out.printf(
-                    (showupdates ? "Incremental " : "") + "CRC32 checksum of %s:\n", InFile);
+        t = tailOpaque();
+        spins = 0;
+        while (t - headAcquire() == slots.length) {
+            if (cancelled) {
+                return null;
+            }
+            if (spins < SPINS) {
+                Thread.onSpinWait();
+                spins++;
+                continue;
+            }
+            producer = Thread.currentThread();
+            VarHandle.fullFence();  // order the waiter before checking again, as release() does the other way round
+            if (t - headAcquire() == slots.length && !cancelled) {
+                LockSupport.park(this);
+            }
+            producer = null;
+        }
+        return cancelled ? null : slots[(int) (t % slots.length)].clear();
+    }
 
-            if (showupdates) {
-                int upd;
+    /**
+     * Producer: hands the claimed buffer, filled up to its position, to the consumer
+     */
+    void publish() {
+        long t = tailOpaque();
+        slots[(int) (t % slots.length)].flip();
+        tailRelease(t + 1);
+        VarHandle.fullFence();  // order the store before reading the waiter, as take() does the other way round
+        wake(consumer);
+    }
 
-                upd = 0;
-                i = fin.read(buf);
-                while (i != -1) {
-                    crc32.update(buf, 0, i);
-                    System.out.printf("Update %d = %x\n", upd, crc32.getValue());
-                    upd++;
-                    i = fin.read(buf);
-                }
-            } else {
-                i = fin.read(buf);
-                while (i != -1) {
-                    crc32.update(buf, 0, i);
-                    i = fin.read(buf);
-                }
-                System.out.printf("%x\n", crc32.getValue());
+    /**
+     * Producer: ends the stream, after the buffers published so far, with an optional failure
+     */
+    void close(IOException failure) {
+        this.failure = failure;
+        closed = true;
+        wake(consumer);
+    }
+
+    /**
+     * Consumer: waits for a published buffer and returns it, or returns {@code null} at the end of the stream
+     */
+    ByteBuffer take() {
+        long  h;
+        int   spins;
+
+        h = headOpaque();
+        spins = 0;
+        while (h == tailAcquire()) {
+            if (closed && h == tailAcquire()) {  // the last publish happened before close
+                return null;
             }
-            System.out.println(
-                    "CrcUtil: " + (showupdates ? "-showupdates command " : "Command ") + "completed successfully");
-        } catch (IOException e) {
-            System.out.println("CrcUtil: The system cannot read from the specified device.");
+            if (spins < SPINS) {
+                Thread.onSpinWait();
+                spins++;
+                continue;
+            }
+            consumer = Thread.currentThread();
+            VarHandle.fullFence();  // order the waiter before checking again, as publish() does the other way round
+            if (h == tailAcquire() && !closed) {
+                LockSupport.park(this);
+            }
+            consumer = null;
+        }
+        return slots[(int) (h % slots.length)];
+    }
+
+    /**
+     * Consumer: returns the taken buffer to the producer
+     */
+    void release() {
+        headRelease(headOpaque() + 1);
+        VarHandle.fullFence();  // order the store before reading the waiter, as claim() does the other way round
+        wake(producer);
+    }
+
+    /**
+     * Consumer: stops the producer, which finds no more free buffers
+     */
+    void cancel() {
+        cancelled = true;
+        wake(producer);
+    }
+
+    /**
+     * The failure the producer ended the stream with, or {@code null}
+     */
+    IOException failure() {
+        return failure;
+    }
+
+    /**
+     * Unparks a parked side. Each side stores its counter or flag before reading the other's waiter, and the
+     * waiter before reading the counters and flags again, so a side about to park either sees the store it
+     * waits for or is seen and unparked
+     */
+    private static void wake(Thread waiter) {
+        if (waiter != null) {
+            LockSupport.unpark(waiter);
         }
+    }
+}
+
+
+/**
+ * Padding that keeps the head counter of {@link BufferRing} off the cache line of whatever precedes it
+ */
+abstract class RingPad0 {
+    private long p01, p02, p03, p04, p05, p06, p07;
+}
+
+
+/**
+ * The head counter of {@link BufferRing}: the number of buffers released by the consumer
+ */
+abstract class RingHead extends RingPad0 {
+
+    private static final VarHandle HEAD;
 
+    static {
         try {
-            fin.close();
-        } catch (IOException e) {
-            System.out.println("CrcUtil: The input file could not be closed.");
+            HEAD = MethodHandles.lookup().findVarHandle(RingHead.class, "head", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private long  head;
+
+    final long headOpaque() {
+        return (long) HEAD.getOpaque(this);
+    }
+
+    final long headAcquire() {
+        return (long) HEAD.getAcquire(this);
+    }
+
+    final void headRelease(long h) {
+        HEAD.setRelease(this, h);
+    }
+}
+
+
+/**
+ * Padding that keeps the head and tail counters of {@link BufferRing}, each written by one side, off each other's cache line
+ */
+abstract class RingPad1 extends RingHead {
+    private long p11, p12, p13, p14, p15, p16, p17;
+}
+
+
+/**
+ * The tail counter of {@link BufferRing}: the number of buffers published by the producer
+ */
+abstract class RingTail extends RingPad1 {
+
+    private static final VarHandle TAIL;
+
+    static {
+        try {
+            TAIL = MethodHandles.lookup().findVarHandle(RingTail.class, "tail", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
         }
+    }
 
+    private long  tail;
+
+    final long tailOpaque() {
+        return (long) TAIL.getOpaque(this);
+    }
+
+    final long tailAcquire() {
+        return (long) TAIL.getAcquire(this);
     }
 
+    final void tailRelease(long t) {
+        TAIL.setRelease(this, t);
+    }
 }
 
+
+/**
+ * Padding that keeps the tail counter of {@link BufferRing} off the cache line of the ring's own fields
+ */
+abstract class RingPad2 extends RingTail {
+    private long p21, p22, p23, p24, p25, p26, p27;
+}
@@ -0,0 +1,112 @@
+package crcutil.bench;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongBinaryOperator;
+import java.util.stream.IntStream;
+import java.util.zip.Checksum;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of splitting a message into chunks, checksumming them in parallel and
+ * combining the results, as {@code -parallel} does with the ranges of a file.
+ * <p>
+ * Chunks are merged through {@code CrcUtil.combiner}, which builds the operator for the
+ * chunk length once, as {@code -parallel} does, so the measurement holds only the
+ * per-chunk GF(2) products.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CombineBenchmark {
+
+    /**
+     * Length of the whole message
+     */
+    private static final int MESSAGE_LENGTH = 67108864;
+
+    @Param({"CRC-32/ISO-HDLC", "CRC-64/XZ"})
+    String algorithm;
+
+    @Param({"4096", "65536", "1048576", "16777216"})
+    int chunkLength;
+
+    private byte[] message;
+
+    private long[] chunkCrcs;
+
+    /**
+     * One checksum per chunk, created outside the measurement since engine selection may calibrate
+     */
+    private Checksum[] checksums;
+
+    /**
+     * Combines a CRC with that of a following chunk
+     */
+    private LongBinaryOperator combiner;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        message = new byte[MESSAGE_LENGTH];
+        new Random(0).nextBytes(message);
+        checksums = new Checksum[MESSAGE_LENGTH / chunkLength];
+        for (int i = 0; i < checksums.length; i++) {
+            checksums[i] = CrcUtilApi.newChecksum(algorithm, "auto");
+        }
+        combiner = CrcUtilApi.combiner(algorithm, chunkLength);
+        chunkCrcs = chunkCrcs();
+    }
+
+    /**
+     * Checksums every chunk in parallel and combines the chunk CRCs in order
+     */
+    @Benchmark
+    public long parallel() {
+        return combineAll(chunkCrcs());
+    }
+
+    /**
+     * Combines precomputed chunk CRCs only
+     */
+    @Benchmark
+    public long combineOnly() {
+        return combineAll(chunkCrcs);
+    }
+
+    private long[] chunkCrcs() {
+        int chunks = MESSAGE_LENGTH / chunkLength;
+
+        return ForkJoinPool.commonPool().submit(() -> IntStream.range(0, chunks).parallel().mapToLong(i -> {
+            Checksum crc = checksums[i];
+            crc.reset();
+            crc.update(message, i * chunkLength, chunkLength);
+            return crc.getValue();
+        }).toArray()).join();
+    }
+
+    private long combineAll(long[] crcs) {
+        long crc = crcs[0];
+
+        for (int i = 1; i < crcs.length; i++) {
+            crc = combiner.applyAsLong(crc, crcs[i]);
+        }
+        return crc;
+    }
+
+}
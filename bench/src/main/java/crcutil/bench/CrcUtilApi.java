@@ -0,0 +1,176 @@
+package crcutil.bench;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.util.function.LongBinaryOperator;
+import java.util.zip.Checksum;
+
+/**
+ * Access to the public API of CrcUtil, which lives in the unnamed package and
+ * so cannot be imported from here.
+ */
+final class CrcUtilApi {
+
+    /**
+     * {@code CrcUtil.newChecksum(String, String)}
+     */
+    private static final MethodHandle NEW_CHECKSUM;
+
+    /**
+     * {@code CrcUtil.combiner(String, long)}
+     */
+    private static final MethodHandle COMBINER;
+
+    /**
+     * {@code CrcUtil.checksumStream(Path, byte[], Checksum)}
+     */
+    private static final MethodHandle CHECKSUM_STREAM;
+
+    /**
+     * {@code CrcUtil.checksumRange(FileChannel, long, long, ByteBuffer, Checksum)}
+     */
+    private static final MethodHandle CHECKSUM_RANGE;
+
+    /**
+     * {@code CrcUtil.checksumChannel(FileChannel, ByteBuffer, Checksum)}
+     */
+    private static final MethodHandle CHECKSUM_CHANNEL;
+
+    /**
+     * {@code CrcUtil.checksumMapped(FileChannel, Checksum)}
+     */
+    private static final MethodHandle CHECKSUM_MAPPED;
+
+    /**
+     * {@code CrcUtil.directOption()}
+     */
+    private static final MethodHandle DIRECT_OPTION;
+
+    static {
+        try {
+            Class<?> c = Class.forName("CrcUtil");
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            NEW_CHECKSUM = lookup.findStatic(c, "newChecksum",
+                    MethodType.methodType(Checksum.class, String.class, String.class));
+            COMBINER = lookup.findStatic(c, "combiner",
+                    MethodType.methodType(LongBinaryOperator.class, String.class, long.class));
+            CHECKSUM_STREAM = lookup.findStatic(c, "checksumStream",
+                    MethodType.methodType(long.class, Path.class, byte[].class, Checksum.class));
+            CHECKSUM_RANGE = lookup.findStatic(c, "checksumRange",
+                    MethodType.methodType(long.class, FileChannel.class, long.class, long.class, ByteBuffer.class, Checksum.class));
+            CHECKSUM_CHANNEL = lookup.findStatic(c, "checksumChannel",
+                    MethodType.methodType(long.class, FileChannel.class, ByteBuffer.class, Checksum.class));
+            CHECKSUM_MAPPED = lookup.findStatic(c, "checksumMapped",
+                    MethodType.methodType(long.class, FileChannel.class, Checksum.class));
+            DIRECT_OPTION = lookup.findStatic(c, "directOption", MethodType.methodType(OpenOption.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private CrcUtilApi() {
+    }
+
+    /**
+     * Creates a checksum for a catalogued algorithm using the named engine
+     *
+     * @throws IllegalArgumentException if the algorithm or engine is unknown, or the engine does not support the algorithm
+     */
+    static Checksum newChecksum(String algorithm, String engine) {
+        try {
+            return (Checksum) NEW_CHECKSUM.invokeExact(algorithm, engine);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    /**
+     * Returns a function combining the CRC of a block with that of a following block of {@code lenB} bytes,
+     * with the algorithm and the operator for {@code lenB} resolved once
+     */
+    static LongBinaryOperator combiner(String algorithm, long lenB) {
+        try {
+            return (LongBinaryOperator) COMBINER.invokeExact(algorithm, lenB);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    /**
+     * Checksums a file read through a {@code FileInputStream}, as CrcUtil's default command
+     */
+    static long checksumStream(Path file, byte[] buf, Checksum crc) throws IOException {
+        try {
+            return (long) CHECKSUM_STREAM.invokeExact(file, buf, crc);
+        } catch (IOException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    /**
+     * Checksums a range of a channel with positional reads into a heap buffer, as {@code -parallel}
+     */
+    static long checksumRange(FileChannel ch, long start, long end, ByteBuffer buf, Checksum crc) throws IOException {
+        try {
+            return (long) CHECKSUM_RANGE.invokeExact(ch, start, end, buf, crc);
+        } catch (IOException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    /**
+     * Checksums the rest of a channel read sequentially, as {@code -bench-io}'s channel and direct runs
+     */
+    static long checksumChannel(FileChannel ch, ByteBuffer buf, Checksum crc) throws IOException {
+        try {
+            return (long) CHECKSUM_CHANNEL.invokeExact(ch, buf, crc);
+        } catch (IOException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    /**
+     * Checksums a channel through memory-mapped windows, as {@code -mmap}
+     */
+    static long checksumMapped(FileChannel ch, Checksum crc) throws IOException {
+        try {
+            return (long) CHECKSUM_MAPPED.invokeExact(ch, crc);
+        } catch (IOException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    /**
+     * The open option for {@code O_DIRECT}
+     *
+     * @throws UnsupportedOperationException if the JDK does not offer it
+     */
+    static OpenOption directOption() {
+        try {
+            return (OpenOption) DIRECT_OPTION.invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+}
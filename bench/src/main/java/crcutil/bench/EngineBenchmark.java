@@ -0,0 +1,115 @@
+package crcutil.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Checksum;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of each checksum engine on in-memory messages.
+ * <p>
+ * The algorithms measured by default are one per kind of kernel path: reflected and non-reflected
+ * CRCs of 8, 16, 32 and 64 bits, plus the two the jdk engine implements. Every other catalogued
+ * algorithm runs through one of these paths with different constants, so measuring all of the
+ * catalog would multiply the run time without new information; pass {@code -p algorithm=Name}
+ * to measure any other.
+ * <p>
+ * The jdk engine implements CRC-32 and CRC-32C only, so it is measured by its own benchmark
+ * over those two, and every parameter combination of either benchmark is valid.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark {
+
+    /**
+     * A message and a checksum of one of CrcUtil's own engines
+     */
+    @State(Scope.Thread)
+    public static class TableEngine {
+
+        @Param({"CRC-32/ISO-HDLC", "CRC-32/ISCSI", "CRC-32/BZIP2", "CRC-64/XZ", "CRC-64/ECMA-182",
+                "CRC-16/ARC", "CRC-16/XMODEM", "CRC-8/SMBUS"})
+        String algorithm;
+
+        @Param({"slice8", "slice16", "fold", "gen"})
+        String engine;
+
+        @Param({"16", "256", "4096", "65536", "1048576", "16777216"})
+        int length;
+
+        Checksum crc;
+
+        byte[] message;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            crc = CrcUtilApi.newChecksum(algorithm, engine);
+            message = new byte[length];
+            new Random(0).nextBytes(message);
+        }
+
+    }
+
+    /**
+     * A message and a checksum of the jdk engine
+     */
+    @State(Scope.Thread)
+    public static class JdkEngine {
+
+        @Param({"CRC-32/ISO-HDLC", "CRC-32/ISCSI"})
+        String algorithm;
+
+        @Param({"16", "256", "4096", "65536", "1048576", "16777216"})
+        int length;
+
+        Checksum crc;
+
+        byte[] message;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            crc = CrcUtilApi.newChecksum(algorithm, "jdk");
+            message = new byte[length];
+            new Random(0).nextBytes(message);
+        }
+
+    }
+
+    /**
+     * Checksums the message from a reset state with one of CrcUtil's own engines
+     */
+    @Benchmark
+    public long table(TableEngine s) {
+        return update(s.crc, s.message);
+    }
+
+    /**
+     * Checksums the message from a reset state with the jdk engine
+     */
+    @Benchmark
+    public long jdk(JdkEngine s) {
+        return update(s.crc, s.message);
+    }
+
+    private static long update(Checksum crc, byte[] message) {
+        crc.reset();
+        crc.update(message, 0, message.length);
+        return crc.getValue();
+    }
+
+}
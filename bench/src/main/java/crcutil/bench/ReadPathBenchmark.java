@@ -0,0 +1,130 @@
+package crcutil.bench;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Checksum;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the ways CrcUtil reads a file, with the file in the page cache.
+ * <p>
+ * Each path calls the read loop CrcUtil itself runs: {@code stream} is the default path
+ * ({@code FileInputStream}, 32 KiB buffer), {@code channel} the positional reads of {@code -parallel}
+ * on one thread, {@code mmap} the windows of {@code -mmap}, and {@code direct} the sequential channel
+ * reads of {@code -bench-io} that bypass the page cache ({@code O_DIRECT}). File systems without {@code O_DIRECT},
+ * such as tmpfs, fail the {@code direct} path in setup; set {@code -Djava.io.tmpdir}
+ * to a disk-backed directory to measure it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadPathBenchmark {
+
+    /**
+     * Buffer size of the stream path, as CrcUtil's default
+     */
+    private static final int STREAM_BUFFER_SIZE = 32768;
+
+    /**
+     * Buffer size of the channel and direct paths, as CrcUtil's ranges
+     */
+    private static final int CHANNEL_BUFFER_SIZE = 1048576;
+
+    @Param({"stream", "channel", "mmap", "direct"})
+    String path;
+
+    @Param({"CRC-32/ISO-HDLC", "CRC-64/XZ"})
+    String algorithm;
+
+    @Param({"1048576", "67108864"})
+    long fileLength;
+
+    private Path file;
+
+    private Checksum crc;
+
+    private ByteBuffer buffer;
+
+    private byte[] array;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        byte[] chunk = new byte[CHANNEL_BUFFER_SIZE];
+        Random random = new Random(0);
+
+        file = Files.createTempFile("crcutil-bench", ".bin");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (long n = 0; n < fileLength; n += chunk.length) {
+                random.nextBytes(chunk);
+                out.write(chunk, 0, (int) Math.min(chunk.length, fileLength - n));
+            }
+        }
+        crc = CrcUtilApi.newChecksum(algorithm, "auto");
+
+        if (path.equals("direct")) {
+            int block = Math.toIntExact(Files.getFileStore(file).getBlockSize());
+            buffer = ByteBuffer.allocateDirect(CHANNEL_BUFFER_SIZE + block).alignedSlice(block);
+            open(CrcUtilApi.directOption()).close();  // fail now if O_DIRECT is unsupported
+        } else {
+            buffer = ByteBuffer.allocate(CHANNEL_BUFFER_SIZE);
+        }
+        array = new byte[STREAM_BUFFER_SIZE];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long read() throws IOException {
+        switch (path) {
+            case "stream":
+                return CrcUtilApi.checksumStream(file, array, crc);
+            case "mmap":
+                try (FileChannel ch = open()) {
+                    return CrcUtilApi.checksumMapped(ch, crc);
+                }
+            case "direct":
+                try (FileChannel ch = open(CrcUtilApi.directOption())) {
+                    return CrcUtilApi.checksumChannel(ch, buffer, crc);
+                }
+            default:
+                try (FileChannel ch = open()) {
+                    return CrcUtilApi.checksumRange(ch, 0, ch.size(), buffer, crc);
+                }
+        }
+    }
+
+    private FileChannel open(OpenOption... options) throws IOException {
+        OpenOption[] all = new OpenOption[options.length + 1];
+        all[0] = StandardOpenOption.READ;
+        System.arraycopy(options, 0, all, 1, options.length);
+        return FileChannel.open(file, all);
+    }
+
+}